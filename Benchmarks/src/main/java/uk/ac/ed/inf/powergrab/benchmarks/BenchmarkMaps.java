@@ -0,0 +1,87 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import uk.ac.ed.inf.powergrab.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Maps used by the benchmarks, either bundled with PowerGrab or generated.
+ */
+final class BenchmarkMaps {
+    /**
+     * The initial position used by PowerGrab's tests
+     */
+    static final Position INITIAL_POSITION = new Position(55.944425, -3.188396);
+
+    private BenchmarkMaps() {}
+
+    /**
+     * Returns the map with the given {@code name}, which is either the path of a
+     * bundled map like {@code "2013/01/01"}, or {@code "synthetic-<stations>"}
+     * for a randomly generated map with the given number of stations.
+     *
+     * @return map of stations
+     */
+    static GameMap load(String name) {
+        if (name.startsWith("synthetic-"))
+            return synthetic(Integer.parseInt(name.substring("synthetic-".length())), 1);
+        String resource = "/maps/" + name + "/powergrabmap.geojson";
+        try (InputStream inputStream = BenchmarkMaps.class.getResourceAsStream(resource)) {
+            if (inputStream == null) throw new IllegalArgumentException("No map " + name);
+            return new GeoJsonReader(inputStream).readMap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates a map whose stations are spread uniformly over the play area,
+     * with resources similar to the ones in the PowerGrab maps.
+     *
+     * @return map of stations
+     */
+    static GameMap synthetic(int stations, long seed) {
+        Random random = new Random(seed);
+        Rectangle area = GameRules.playArea;
+        List<Station> result = new ArrayList<>(stations);
+        for (int i = 0; i < stations; i++) {
+            double latitude = area.bottomRight.latitude
+                    + random.nextDouble() * (area.topLeft.latitude - area.bottomRight.latitude);
+            double longitude = area.topLeft.longitude
+                    + random.nextDouble() * (area.bottomRight.longitude - area.topLeft.longitude);
+            double sign = random.nextBoolean() ? 1.0 : -1.0;
+            result.add(new Station(Integer.toString(i), new Position(latitude, longitude),
+                    sign * random.nextDouble() * 125.0, sign * random.nextDouble() * 125.0));
+        }
+        return new GameMap(result);
+    }
+
+    /**
+     * Returns random positions within the play area.
+     *
+     * @return array of positions
+     */
+    static Position[] positions(int count, long seed) {
+        Random random = new Random(seed);
+        Rectangle area = GameRules.playArea;
+        Position[] result = new Position[count];
+        for (int i = 0; i < count; i++)
+            result[i] = new Position(
+                    area.bottomRight.latitude + random.nextDouble() * (area.topLeft.latitude - area.bottomRight.latitude),
+                    area.topLeft.longitude + random.nextDouble() * (area.bottomRight.longitude - area.topLeft.longitude));
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.ed.inf.powergrab.GameMap;
+import uk.ac.ed.inf.powergrab.Position;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the station close to a position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameMapBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({ "2013/01/01", "synthetic-50", "synthetic-1000", "synthetic-10000" })
+    public String map;
+
+    private GameMap gameMap;
+    private Position[] positions;
+
+    @Setup
+    public void setup() {
+        gameMap = BenchmarkMaps.load(map);
+        positions = BenchmarkMaps.positions(QUERIES, 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void closeStation(Blackhole blackhole) {
+        for (Position position : positions)
+            blackhole.consume(gameMap.closeStation(position));
+    }
+}
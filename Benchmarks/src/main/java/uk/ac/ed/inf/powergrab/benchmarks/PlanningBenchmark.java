@@ -0,0 +1,45 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ed.inf.powergrab.Direction;
+import uk.ac.ed.inf.powergrab.GameMap;
+import uk.ac.ed.inf.powergrab.StatefulDrone;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the first plan of a {@link StatefulDrone}, which is found by
+ * ordering the stations with a TSP solver and then searching for the path with
+ * a {@link uk.ac.ed.inf.powergrab.search.HeuristicSearchSolver HeuristicSearchSolver}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanningBenchmark {
+    @Param({ "synthetic-25", "synthetic-50" })
+    public String map;
+
+    private GameMap gameMap;
+
+    @Setup
+    public void setup() {
+        gameMap = BenchmarkMaps.load(map);
+    }
+
+    @Benchmark
+    public Direction statefulPlan() {
+        // planning does not change the map so it can be shared between iterations
+        return new StatefulDrone(BenchmarkMaps.INITIAL_POSITION, gameMap, 0.0, 250.0, 250).getDirection();
+    }
+}
@@ -0,0 +1,53 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ed.inf.powergrab.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks complete simulations of both drones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final int MAX_MOVES = 250;
+
+    @Param({ "synthetic-50" })
+    public String map;
+
+    private GameMap gameMap;
+
+    @Setup
+    public void setup() {
+        gameMap = BenchmarkMaps.load(map);
+    }
+
+    @Benchmark
+    public List<Simulation.Move> stateless() {
+        // the stations are changed by the simulation so every run needs a copy of the map
+        Drone drone = new StatelessDrone(BenchmarkMaps.INITIAL_POSITION, new GameMap(gameMap), 0.0, 250.0);
+        drone.random.setSeed(5678);
+        return new Simulation(drone, MAX_MOVES).runSimulation();
+    }
+
+    @Benchmark
+    public List<Simulation.Move> stateful() {
+        Drone drone = new StatefulDrone(BenchmarkMaps.INITIAL_POSITION, new GameMap(gameMap), 0.0, 250.0, MAX_MOVES);
+        drone.random.setSeed(5678);
+        return new Simulation(drone, MAX_MOVES).runSimulation();
+    }
+}
@@ -0,0 +1,71 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.paulgeorgiou.collections.HeapPriorityDeque;
+import org.paulgeorgiou.collections.TreePriorityDeque;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a bounded {@link TreePriorityDeque} and {@link HeapPriorityDeque} used
+ * in the same way as the frontier of a search: elements are added and the best ones are polled, while the worst
+ * elements are trimmed when the maximum size is exceeded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreePriorityDequeBenchmark {
+    private static final int OPERATIONS = 65536;
+
+    @Param({ "256", "4096" })
+    public int maxSize;
+
+    private Double[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(4);
+        values = new Double[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++)
+            // few distinct values so that ties are common
+            values[i] = (double) random.nextInt(1024);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void addPollTrim(Blackhole blackhole) {
+        TreePriorityDeque<Double> deque = new TreePriorityDeque<>();
+        deque.setMaxSize(maxSize);
+        for (int i = 0; i < OPERATIONS; i++) {
+            deque.addLast(values[i]);
+            // like a search which adds more nodes than it removes
+            if (i % 4 == 0)
+                blackhole.consume(deque.removeFirst());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void heapAddPollTrim(Blackhole blackhole) {
+        HeapPriorityDeque<Double> deque = new HeapPriorityDeque<>();
+        deque.setMaxSize(maxSize);
+        for (int i = 0; i < OPERATIONS; i++) {
+            deque.addLast(values[i]);
+            if (i % 4 == 0)
+                blackhole.consume(deque.removeFirst());
+        }
+    }
+}
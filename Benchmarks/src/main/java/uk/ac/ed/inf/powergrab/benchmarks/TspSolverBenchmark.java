@@ -0,0 +1,53 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ed.inf.powergrab.Position;
+import uk.ac.ed.inf.powergrab.search.IterativeTspSolver;
+import uk.ac.ed.inf.powergrab.search.LocalSearchTspSolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the TSP solvers used for planning the order of visiting stations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TspSolverBenchmark {
+    @Param({ "10", "25", "50", "100" })
+    public int nodes;
+
+    private List<Position> positions;
+
+    @Setup
+    public void setup() {
+        positions = Arrays.asList(BenchmarkMaps.positions(nodes, 3));
+    }
+
+    @Benchmark
+    public List<Position> iterativeSolve() {
+        IterativeTspSolver<Position> solver = new IterativeTspSolver<>(nodes);
+        solver.setInitialNode(BenchmarkMaps.INITIAL_POSITION);
+        return solver.solve(positions);
+    }
+
+    @Benchmark
+    public List<Position> localSearchSolve() {
+        LocalSearchTspSolver<Position> solver = new LocalSearchTspSolver<>();
+        solver.setInitialNode(BenchmarkMaps.INITIAL_POSITION);
+        return solver.solve(positions);
+    }
+}
@@ -0,0 +1,762 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package org.paulgeorgiou.collections;
+
+import java.util.*;
+
+/**
+ * A priority {@linkplain Deque deque} based on an array-backed min-max heap.
+ * The elements of the priority queue are ordered according to their
+ * {@linkplain Comparable natural ordering}, or by a {@link Comparator}
+ * provided at queue construction time, depending on which constructor
+ * is used. A priority queue does not permit {@code null} elements.
+ * A priority queue relying on natural ordering also does not permit
+ * insertion of non-comparable objects (doing so may result in
+ * {@code ClassCastException}). Elements with equal priority are permitted
+ * and are ordered in a similar way to a {@linkplain Deque deque}.
+ *
+ * <p>The elements are ordered in exactly the same way as in a
+ * {@link TreePriorityDeque}, but they are stored in an array along with
+ * an array of their insertion indices, which break ties between elements
+ * with equal priority. Inserting and removing the first or last element
+ * takes logarithmic time, while retrieving them takes constant time.
+ * Removing or searching for an arbitrary element takes linear time, and
+ * the iterators return the elements of a sorted copy of the queue.
+ *
+ * @author Pavlos (Paul) Georgiou
+ * @see TreePriorityDeque
+ * @see PriorityQueue
+ * @see Deque
+ * @see Queue
+ * @param <E> the type of elements held in this collection
+ */
+public class HeapPriorityDeque<E> extends AbstractQueue<E>
+    implements Deque<E>, java.io.Serializable, Cloneable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long index = 0;
+    private int maxSize = Integer.MAX_VALUE;
+    private Comparator<? super E> comparator;
+    /**
+     * The heap: elements on even levels are less than their descendants,
+     * and elements on odd levels are greater than their descendants.
+     * Elements are compared by priority and then by insertion index.
+     */
+    private Object[] elements;
+    private long[] indices;
+    private int size = 0;
+
+    private long getIndex() {
+        if (index == Long.MAX_VALUE || index < 0) index = 0;
+        return index++;
+    }
+
+    private void trim() {
+        trim(maxSize);
+    }
+
+    /**
+     * Creates a {@code HeapPriorityDeque} that orders its elements
+     * according to their {@linkplain Comparable natural ordering}.
+     */
+    public HeapPriorityDeque() {
+        this.comparator = null;
+        this.elements = new Object[DEFAULT_CAPACITY];
+        this.indices = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Creates a {@code HeapPriorityDeque} that orders its elements
+     * according to the specified comparator.
+     *
+     * @param comparator the comparator that will be used to order this
+     *        priority queue. If {@code null}, the {@linkplain Comparable
+     *        natural ordering} of the elements will be used.
+     */
+    public HeapPriorityDeque(Comparator<? super E> comparator) {
+        this();
+        this.comparator = comparator;
+    }
+
+    /**
+     * Creates a {@code HeapPriorityDeque} containing the elements in the
+     * specified collection. If the specified collection is an instance of
+     * a {@code HeapPriorityDeque}, this priority queue will be ordered
+     * according to the same ordering. Otherwise, this priority queue will
+     * be ordered according to the {@linkplain Comparable natural ordering}
+     * of its elements.
+     *
+     * @param c the collection whose elements are to be placed
+     *        into this priority queue
+     * @throws ClassCastException if elements of the specified collection
+     *         cannot be compared to one another according to the priority
+     *         queue's ordering
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    @SuppressWarnings("unchecked")
+    public HeapPriorityDeque(Collection<? extends E> c) {
+        this();
+        if (c instanceof HeapPriorityDeque<?> && c.getClass() == HeapPriorityDeque.class) {
+            // c is a HeapPriorityDeque and not an object which extends HeapPriorityDeque
+            HeapPriorityDeque<? extends E> hpq = (HeapPriorityDeque<? extends E>) c;
+            copyHeap(hpq);
+            this.comparator = (Comparator<? super E>) hpq.comparator;
+        } else {
+            addAll(c);
+        }
+    }
+
+    /**
+     * Creates a {@code HeapPriorityDeque} that orders its elements
+     * according to the specified comparator, containing the elements
+     * in the specified collection.
+     *
+     * @param c the collection whose elements are to be placed
+     *        into this priority queue
+     * @param comparator the comparator that will be used to order this
+     *        priority queue.  If {@code null}, the {@linkplain Comparable
+     *        natural ordering} of the elements will be used.
+     * @throws ClassCastException if elements of the specified collection
+     *         cannot be compared to one another according to the priority
+     *         queue's ordering
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public HeapPriorityDeque(Collection<? extends E> c, Comparator<? super E> comparator) {
+        this(comparator);
+        // the elements have to be ordered again with the new comparator
+        addAll(c);
+    }
+
+    private void copyHeap(HeapPriorityDeque<?> hpq) {
+        this.elements = Arrays.copyOf(hpq.elements, Math.max(hpq.size, DEFAULT_CAPACITY));
+        this.indices = Arrays.copyOf(hpq.indices, this.elements.length);
+        this.size = hpq.size;
+        this.index = hpq.index;
+    }
+
+    /**
+     * @return the maximum size of this priority queue
+     */
+    public int getMaxSize() { return maxSize; }
+
+    /**
+     * Set the maximum size of this priority queue. When the maximum size is
+     * exceeded, the greatest elements are removed to meet the restriction.
+     *
+     * @param maxSize the maximum size of the queue
+     * @throws IllegalArgumentException if the specified size is negative
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException();
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this
+     * queue, or {@code null} if this queue is sorted according to
+     * the {@linkplain Comparable natural ordering} of its elements.
+     *
+     * @return the comparator used to order this queue, or
+     *         {@code null} if this queue is sorted according to the
+     *         natural ordering of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Remove the greatest elements of the priority queue such that its size
+     * is no greater than the maximum size specified.
+     *
+     * @throws IllegalArgumentException if the specified size is negative
+     */
+    public void trim(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException();
+        while (size > maxSize)
+            removeAt(lastPosition());
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue,
+     * from the smallest to the largest.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(sortedElements())).iterator();
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue,
+     * from the largest to the smallest.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    @Override
+    public Iterator<E> descendingIterator() {
+        List<E> list = Arrays.asList(sortedElements());
+        Collections.reverse(list);
+        return Collections.unmodifiableList(list).iterator();
+    }
+
+    /**
+     * Returns the elements sorted from the smallest to the largest.
+     */
+    @SuppressWarnings("unchecked")
+    private E[] sortedElements() {
+        Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++)
+            positions[i] = i;
+        Arrays.sort(positions, this::compare);
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++)
+            result[i] = elements[positions[i]];
+        return (E[]) result;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the start of the group of elements
+     * which have equal priority.
+     *
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void addFirst(E e) {
+        if (!offerFirst(e)) throw new IllegalStateException();
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the end of the group of elements
+     * which have equal priority.
+     *
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void addLast(E e) {
+        if (!offerLast(e)) throw new IllegalStateException();
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the start of the group of elements
+     * which have equal priority.
+     *
+     * @return {@code true} (as specified by {@link Deque#offerFirst})
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean offerFirst(E e) {
+        if (e == null) throw new NullPointerException();
+        insert(e, -getIndex());
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the end of the group of elements
+     * which have equal priority.
+     *
+     * @return {@code true} (as specified by {@link Deque#offerLast})
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean offerLast(E e) {
+        if (e == null) throw new NullPointerException();
+        insert(e, getIndex());
+        return true;
+    }
+
+    private void insert(E e, long index) {
+        if (size >= maxSize) {
+            // the queue is full, so the element would be removed straight away
+            // if it is not less than the greatest element, otherwise it replaces it
+            if (size == 0) return;
+            int last = lastPosition();
+            if (compare(e, index, last) > 0) return;
+            elements[last] = e;
+            indices[last] = index;
+            pushUp(pushDown(last));
+            return;
+        }
+        if (size == elements.length) {
+            int capacity = elements.length < Integer.MAX_VALUE / 2 ? elements.length * 2 : Integer.MAX_VALUE - 8;
+            if (capacity <= size) throw new OutOfMemoryError();
+            elements = Arrays.copyOf(elements, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+        }
+        elements[size] = e;
+        indices[size] = index;
+        pushUp(size++);
+    }
+
+    /**
+     * Retrieves and removes the first element of this priority queue. This method
+     * differs from {@link #pollFirst pollFirst} only in that it throws an
+     * exception if this priority queue is empty.
+     *
+     * @return the head of this queue
+     * @throws NoSuchElementException if this deque is empty
+     */
+    @Override
+    public E removeFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        return removeAt(0);
+    }
+
+    /**
+     * Retrieves and removes the last element of this priority queue. This method
+     * differs from {@link #pollLast pollLast} only in that it throws an
+     * exception if this priority queue is empty.
+     *
+     * @return the tail of this queue
+     * @throws NoSuchElementException if this deque is empty
+     */
+    @Override
+    public E removeLast() {
+        if (size == 0) throw new NoSuchElementException();
+        return removeAt(lastPosition());
+    }
+
+    /**
+     * Retrieves and removes the first element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E pollFirst() {
+        if (size == 0) return null;
+        return removeAt(0);
+    }
+
+    /**
+     * Retrieves and removes the last element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * @return the tail of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E pollLast() {
+        if (size == 0) return null;
+        return removeAt(lastPosition());
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this priority queue.
+     *
+     * This method differs from {@link #peekFirst peekFirst} only in that it
+     * throws an exception if this priority queue is empty.
+     *
+     * @return the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    @Override
+    public E getFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        return elementAt(0);
+    }
+
+    /**
+     * Retrieves, but does not remove, the last element of this priority queue.
+     * This method differs from {@link #peekLast peekLast} only in that it
+     * throws an exception if this priority queue is empty.
+     *
+     * @return the tail of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    @Override
+    public E getLast() {
+        if (size == 0) throw new NoSuchElementException();
+        return elementAt(lastPosition());
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E peekFirst() {
+        if (size == 0) return null;
+        return elementAt(0);
+    }
+
+    /**
+     * Retrieves, but does not remove, the last element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * @return the tail of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E peekLast() {
+        if (size == 0) return null;
+        return elementAt(lastPosition());
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this queue.
+     * If the queue does not contain the element, it is unchanged.
+     * Returns {@code true} if this queue contained the specified element.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if an element was removed as a result of this call
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in this queue
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this queue.
+     * If the queue does not contain the element, it is unchanged.
+     * Returns {@code true} if this queue contained the specified element.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if an element was removed as a result of this call
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in this queue
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return removeOccurrence(o, true);
+    }
+
+    /**
+     * Removes the last occurrence of the specified element from this queue.
+     * If the queue does not contain the element, it is unchanged.
+     * Returns {@code true} if this queue contained the specified element.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if an element was removed as a result of this call
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in this queue
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return removeOccurrence(o, false);
+    }
+
+    /**
+     * Removes the element with equal priority to {@code o}
+     * and the least or greatest insertion index.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean removeOccurrence(Object o, boolean first) {
+        if (o == null) throw new NullPointerException();
+        int found = -1;
+        for (int i = 0; i < size; i++)
+            if (compareValues((E) o, elementAt(i)) == 0
+                    && (found < 0 || (indices[i] < indices[found]) == first))
+                found = i;
+        if (found < 0) return false;
+        removeAt(found);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the end of the group of elements
+     * which have equal priority.
+     *
+     * <p>This method is equivalent to {@link #offerLast}.
+     *
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean offer(E e) {
+        return offerLast(e);
+    }
+
+    /**
+     * Retrieves and removes the first element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * <p>This method is equivalent to {@link #pollFirst()}.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this priority queue,
+     * or returns {@code null} if this priority queue is empty.
+     *
+     * <p>This method is equivalent to {@link #peekFirst()}.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * The element is inserted at the start of the group of elements
+     * which have equal priority.
+     *
+     * <p>This method is equivalent to {@link #addFirst}.
+     *
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    /**
+     * Retrieves and removes the first element of this priority queue. This method
+     * differs from {@link #pollFirst pollFirst} only in that it throws an
+     * exception if this priority queue is empty.
+     *
+     * <p>This method is equivalent to {@link #removeFirst()}.
+     *
+     * @return the head of this queue
+     * @throws NoSuchElementException if this deque is empty
+     */
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    /**
+     * Removes all of the elements from this priority queue.
+     * The queue will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        index = 0;
+    }
+
+    /**
+     * @return the number of elements in this priority queue
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if this priority queue contains no elements
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     *
+     * @return {@code true} if this queue contains the specified element
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in the queue
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (o == null) throw new NullPointerException();
+        for (int i = 0; i < size; i++)
+            if (compareValues((E) o, elementAt(i)) == 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code HeapPriorityDeque} instance.
+     * (The elements themselves are not cloned.)
+     *
+     * @return a shallow copy of this queue
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        HeapPriorityDeque<E> clone;
+        try {
+            clone = (HeapPriorityDeque<E>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.copyHeap(this);
+        clone.comparator = comparator;
+        return clone;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int i) {
+        return (E) elements[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareValues(E a, E b) {
+        // Use the comparator to compare elements if provided,
+        // otherwise use their natural ordering.
+        return comparator == null
+                ? ((Comparable<? super E>) a).compareTo(b)
+                : comparator.compare(a, b);
+    }
+
+    /**
+     * Compares element {@code e} with insertion index {@code index}
+     * to the element at position {@code j} of the heap.
+     */
+    private int compare(E e, long index, int j) {
+        int compare = compareValues(e, elementAt(j));
+        // If two elements are equal, compare their indices
+        return compare == 0 ? Long.compare(index, indices[j]) : compare;
+    }
+
+    /**
+     * Compares the elements at positions {@code i} and {@code j} of the heap.
+     */
+    private int compare(int i, int j) {
+        return compare(elementAt(i), indices[i], j);
+    }
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+        long index = indices[i];
+        indices[i] = indices[j];
+        indices[j] = index;
+    }
+
+    /**
+     * Returns {@code true} if position {@code i} is on an even level of the heap,
+     * where elements are less than their descendants.
+     */
+    private static boolean isMinLevel(int i) {
+        return ((31 - Integer.numberOfLeadingZeros(i + 1)) & 1) == 0;
+    }
+
+    /**
+     * Returns the position of the greatest element, the heap must not be empty.
+     */
+    private int lastPosition() {
+        if (size <= 2) return size - 1;
+        return compare(1, 2) > 0 ? 1 : 2;
+    }
+
+    /**
+     * Removes and returns the element at position {@code i}.
+     */
+    private E removeAt(int i) {
+        E result = elementAt(i);
+        size--;
+        elements[i] = elements[size];
+        indices[i] = indices[size];
+        elements[size] = null;
+        if (i < size) {
+            // the element moved from the bottom of the heap
+            // may also be out of order with the ancestors of i
+            pushUp(pushDown(i));
+        }
+        return result;
+    }
+
+    private void pushUp(int i) {
+        if (i == 0) return;
+        int parent = (i - 1) / 2;
+        boolean min = isMinLevel(i);
+        int compare = compare(i, parent);
+        if (min ? compare > 0 : compare < 0) {
+            swap(i, parent);
+            pushUp(parent, !min);
+        } else {
+            pushUp(i, min);
+        }
+    }
+
+    /**
+     * Moves the element at position {@code i} up the levels of the same parity.
+     */
+    private void pushUp(int i, boolean min) {
+        while (i > 2) {
+            int grandparent = (i - 3) / 4;
+            int compare = compare(i, grandparent);
+            if (min ? compare >= 0 : compare <= 0) break;
+            swap(i, grandparent);
+            i = grandparent;
+        }
+    }
+
+    /**
+     * Moves the element at position {@code i} down the heap,
+     * returns the position the element has been moved to.
+     */
+    private int pushDown(int i) {
+        boolean min = isMinLevel(i);
+        int result = -1;
+        while (true) {
+            // find the least (or greatest) of the children and grandchildren
+            int first = 2 * i + 1;
+            if (first >= size) return result < 0 ? i : result;
+            int best = first;
+            if (first + 1 < size && (min ? compare(first + 1, best) < 0 : compare(first + 1, best) > 0))
+                best = first + 1;
+            for (int j = 2 * first + 1, last = Math.min(2 * first + 4, size - 1); j <= last; j++) {
+                int compare = compare(j, best);
+                if (min ? compare < 0 : compare > 0)
+                    best = j;
+            }
+            int compare = compare(best, i);
+            if (min ? compare >= 0 : compare <= 0) return result < 0 ? i : result;
+            swap(best, i);
+            if (best <= first + 1) return result < 0 ? best : result; // a child, which has no descendants
+            int parent = (best - 1) / 2;
+            compare = compare(best, parent);
+            if (min ? compare > 0 : compare < 0) {
+                swap(best, parent);
+                // the element stays at parent and the one swapped with it is moved down instead
+                if (result < 0) result = parent;
+            }
+            i = best;
+        }
+    }
+}
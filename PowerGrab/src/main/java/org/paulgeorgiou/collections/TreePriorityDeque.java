@@ -387,9 +387,7 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
      */
     @Override
     public E getFirst() {
-        Entry result = tree.last();
-        if (result == null) throw new NoSuchElementException();
-        return result.value;
+        return tree.first().value;
     }
 
     /**
@@ -402,9 +400,7 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
      */
     @Override
     public E getLast() {
-        Entry result = tree.first();
-        if (result == null) throw new NoSuchElementException();
-        return result.value;
+        return tree.last().value;
     }
 
     /**
@@ -415,9 +411,8 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
      */
     @Override
     public E peekFirst() {
-        Entry result = tree.first();
-        if (result == null) return null;
-        return result.value;
+        if (tree.isEmpty()) return null;
+        return tree.first().value;
     }
 
     /**
@@ -428,9 +423,8 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
      */
     @Override
     public E peekLast() {
-        Entry result = tree.last();
-        if (result == null) return null;
-        return result.value;
+        if (tree.isEmpty()) return null;
+        return tree.last().value;
     }
 
     /**
@@ -464,8 +458,10 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
     @SuppressWarnings("unchecked")
     public boolean removeFirstOccurrence(Object o) {
         if (o == null) throw new NullPointerException();
+        ObjectEntry entry = new ObjectEntry((E) o);
         Entry entryToRemove = tree.ceiling(new Entry((E) o, Long.MIN_VALUE));
-        return entryToRemove != null && tree.remove(entryToRemove);
+        // the entry found may have greater priority if there are no equal entries
+        return entryToRemove != null && entry.compareTo(entryToRemove) == 0 && tree.remove(entryToRemove);
     }
 
     /**
@@ -483,8 +479,10 @@ public class TreePriorityDeque<E> extends AbstractQueue<E>
     @SuppressWarnings("unchecked")
     public boolean removeLastOccurrence(Object o) {
         if (o == null) throw new NullPointerException();
+        ObjectEntry entry = new ObjectEntry((E) o);
         Entry entryToRemove = tree.floor(new Entry((E) o, Long.MAX_VALUE));
-        return entryToRemove != null && tree.remove(entryToRemove);
+        // the entry found may have lower priority if there are no equal entries
+        return entryToRemove != null && entry.compareTo(entryToRemove) == 0 && tree.remove(entryToRemove);
     }
 
     /**
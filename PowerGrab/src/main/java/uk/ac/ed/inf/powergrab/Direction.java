@@ -24,12 +24,32 @@ public enum Direction {
      * Precomputed cos value for this direction's {@linkplain #getAngle angle}
      */
     public final double cos;
+    /**
+     * Precomputed change in latitude after a move in this direction
+     */
+    public final double latitudeDelta;
+    /**
+     * Precomputed change in longitude after a move in this direction
+     */
+    public final double longitudeDelta;
 
     Direction(int direction) {
         this.direction = direction;
         double angle = getAngle();
         this.sin = Math.sin(angle);
         this.cos = Math.cos(angle);
+        this.latitudeDelta = cos * GameRules.moveDistance;
+        this.longitudeDelta = sin * GameRules.moveDistance;
+    }
+
+    /**
+     * Returns the opposite direction, a move in which
+     * cancels a move in this direction.
+     *
+     * @return opposite direction
+     */
+    public Direction opposite() {
+        return values()[(direction + 8) % 16];
     }
 
     /**
@@ -0,0 +1,252 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles as the shortest decimal which reads back as the same double,
+ * using the Schubfach algorithm by Raffaello Giulietti, without allocating.
+ *
+ * <p>Numbers from 10<sup>-3</sup> inclusive to 10<sup>7</sup> exclusive are
+ * written in plain notation without a trailing {@code .0}, the way
+ * {@link org.json.JSONObject} writes them, and others in the computerized
+ * scientific notation of {@link Double#toString(double)}. The digits are the same as
+ * those of {@link Double#toString(double)} except where it gives more than needed.
+ */
+final class DoubleFormat {
+    /**
+     * The maximum number of characters written for a double
+     */
+    static final int MAX_CHARS = 24;
+
+    private static final int Q_MIN = -1074, P = 53;
+    private static final long C_MIN = 1L << (P - 1), T_MASK = C_MIN - 1;
+    private static final int C_TINY = 3;
+    private static final int K_MIN = -324, K_MAX = 292;
+    private static final long MASK_63 = Long.MAX_VALUE;
+    private static final long[] POW10 = new long[18];
+    /**
+     * For each k from {@link #K_MIN} to {@link #K_MAX}, the upper 63 bits and lower
+     * 63 bits of g, where 10<sup>-k</sup> = beta 2<sup>r</sup> for the integer r with
+     * 2<sup>125</sup> &le; beta &lt; 2<sup>126</sup>, and g = floor(beta) + 1
+     */
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+        BigInteger ten = BigInteger.TEN;
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger pow = ten.pow(-k);
+                int shift = pow.bitLength() - 126;
+                g = shift >= 0 ? pow.shiftRight(shift) : pow.shiftLeft(-shift);
+            } else {
+                BigInteger pow = ten.pow(k);
+                // 2^s / 10^k has either s - bitLength + 1 or s - bitLength bits
+                int s = pow.bitLength() + 125;
+                g = BigInteger.ONE.shiftLeft(s).divide(pow);
+                if (g.bitLength() < 126)
+                    g = BigInteger.ONE.shiftLeft(s + 1).divide(pow);
+            }
+            g = g.add(BigInteger.ONE);
+            int index = (k - K_MIN) << 1;
+            G[index] = g.shiftRight(63).longValue();
+            G[index + 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    private DoubleFormat() {}
+
+    /**
+     * Returns the shortest decimal representation of {@code value}.
+     *
+     * @throws IllegalArgumentException if {@code value} is not finite
+     */
+    static String toString(double value) {
+        char[] buffer = new char[MAX_CHARS];
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Writes the shortest decimal representation of {@code value} into
+     * {@code buffer} from {@code offset}, which needs room for
+     * {@link #MAX_CHARS} characters.
+     *
+     * @return the index after the last character written
+     * @throws IllegalArgumentException if {@code value} is not finite
+     */
+    static int format(double value, char[] buffer, int offset) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1)) & 0x7ff;
+        if (bq == 0x7ff) throw new IllegalArgumentException("Non-finite number: " + value);
+        if (bits < 0) buffer[offset++] = '-';
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // integers are exact, so they are their own shortest decimal
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c)
+                    return toChars(f, 0, buffer, offset);
+            }
+            return toDecimal(-mq, c, 0, buffer, offset);
+        }
+        if (t != 0)
+            return t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, buffer, offset)
+                    : toDecimal(Q_MIN, t, 0, buffer, offset);
+        buffer[offset++] = '0';
+        return offset;
+    }
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c 2<sup>q</sup>
+     * and writes it, with its exponent adjusted by {@code dk}.
+     */
+    private static int toDecimal(int q, long c, int dk, char[] buffer, int offset) {
+        int out = (int) c & 1;
+        long cb = c << 2, cbr = cb + 2, cbl;
+        int k;
+        if (c != C_MIN | q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // the interval is asymmetric at powers of two
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        int index = (k - K_MIN) << 1;
+        long g1 = G[index], g0 = G[index + 1];
+        long vb = rop(g1, g0, cb << h), vbl = rop(g1, g0, cbl << h), vbr = rop(g1, g0, cbr << h);
+        long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit less first
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4), tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2, wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+                return toChars(upin ? sp10 : tp10, k, buffer, offset);
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2, win = (t << 2) + out <= vbr;
+        if (uin != win)
+            return toChars(uin ? s : t, k + dk, buffer, offset);
+        // both are in the interval, so the closest one is chosen, or the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return toChars(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, offset);
+    }
+
+    /**
+     * Returns the rounded-to-odd product of g and {@code cp}, divided by 2<sup>127</sup>.
+     */
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp, y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * Writes f 10<sup>e</sup>, where f is positive.
+     */
+    private static int toChars(long f, int e, char[] buffer, int offset) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int n = 1;
+        while (n < POW10.length && f >= POW10[n])
+            n++;
+        // the number of digits before the decimal point
+        int point = n + e;
+        if (point >= -2 && point <= 7) {
+            if (point <= 0) {
+                buffer[offset++] = '0';
+                buffer[offset++] = '.';
+                for (int i = point; i < 0; i++)
+                    buffer[offset++] = '0';
+                return writeDigits(f, n, 0, n, buffer, offset);
+            }
+            if (point >= n) {
+                offset = writeDigits(f, n, 0, n, buffer, offset);
+                for (int i = n; i < point; i++)
+                    buffer[offset++] = '0';
+                return offset;
+            }
+            offset = writeDigits(f, n, 0, point, buffer, offset);
+            buffer[offset++] = '.';
+            return writeDigits(f, n, point, n, buffer, offset);
+        }
+        offset = writeDigits(f, n, 0, 1, buffer, offset);
+        buffer[offset++] = '.';
+        if (n == 1)
+            buffer[offset++] = '0';
+        offset = writeDigits(f, n, 1, n, buffer, offset);
+        buffer[offset++] = 'E';
+        int exponent = point - 1;
+        if (exponent < 0) {
+            buffer[offset++] = '-';
+            exponent = -exponent;
+        }
+        if (exponent >= 100) buffer[offset++] = (char) ('0' + exponent / 100);
+        if (exponent >= 10) buffer[offset++] = (char) ('0' + exponent / 10 % 10);
+        buffer[offset++] = (char) ('0' + exponent % 10);
+        return offset;
+    }
+
+    /**
+     * Writes the digits of {@code f}, which has {@code n} digits,
+     * from index {@code from} inclusive to {@code to} exclusive.
+     */
+    private static int writeDigits(long f, int n, int from, int to, char[] buffer, int offset) {
+        for (int i = from; i < to; i++)
+            buffer[offset++] = (char) ('0' + f / POW10[n - 1 - i] % 10);
+        return offset;
+    }
+
+    /**
+     * Returns floor(log<sub>10</sub>(2<sup>e</sup>)).
+     */
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    /**
+     * Returns floor(log<sub>10</sub>(3/4 2<sup>e</sup>)).
+     */
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /**
+     * Returns floor(log<sub>2</sub>(10<sup>e</sup>)).
+     */
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Returns the upper 64 bits of the 128-bit product of {@code x} and {@code y},
+     * as {@code Math.multiplyHigh} which is not available before Java 9.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32, x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32, y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+        long z0 = t >> 32;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+}
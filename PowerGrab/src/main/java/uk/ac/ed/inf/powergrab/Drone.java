@@ -14,6 +14,9 @@ import java.util.Random;
  * Base class for a drone which implements movement and resource transfer.
  */
 public abstract class Drone {
+    // the position is kept as coordinates so that moving doesn't allocate,
+    // the Position object is created only when requested
+    private double latitude, longitude;
     private Position position;
     private double coins, power;
 
@@ -36,13 +39,23 @@ public abstract class Drone {
         if (position == null || map == null) throw new NullPointerException();
         if (coins < 0.0 || power < 0.0) throw new IllegalArgumentException();
         this.random = new Random();
+        this.latitude = position.latitude;
+        this.longitude = position.longitude;
         this.position = position;
         this.map = map;
         this.coins = coins;
         this.power = power;
     }
 
-    public Position getPosition() { return position; }
+    public Position getPosition() {
+        if (position == null)
+            position = new Position(latitude, longitude);
+        return position;
+    }
+
+    public double getLatitude() { return latitude; }
+
+    public double getLongitude() { return longitude; }
 
     public double getCoins() { return coins; }
 
@@ -78,11 +91,13 @@ public abstract class Drone {
             power = 0.0;
             return;
         }
-        position = position.nextPosition(direction);
+        latitude += direction.latitudeDelta;
+        longitude += direction.longitudeDelta;
+        position = null;
         power -= GameRules.powerConsumedPerMove;
-        Station closeStation = map.closeStation(position);
-        if (closeStation != null)
-            closeStation.connect(this);
+        int closeStation = map.layout.closeStation(latitude, longitude);
+        if (closeStation >= 0)
+            map.connect(closeStation, this);
     }
 
     /**
@@ -0,0 +1,76 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Creates drones of a type, identified by its name. Factories are found with
+ * {@link ServiceLoader}, so further types of drones are added by listing their
+ * factories in {@code META-INF/services/uk.ac.ed.inf.powergrab.DroneFactory}.
+ */
+public interface DroneFactory {
+    /**
+     * Returns the name of the type of drones, as given in the arguments of the program.
+     *
+     * @return name of the type
+     */
+    String getName();
+
+    /**
+     * Returns whether the drones of copies of the same map can be created and
+     * simulated on different threads concurrently, sharing what was prepared
+     * for the map by {@link #prepare}.
+     */
+    boolean sharesMapState();
+
+    /**
+     * Returns the maximum time the drones spend planning a move with the given
+     * {@code settings}, {@link Long#MAX_VALUE} if unbounded, or {@code -1} if they
+     * do not plan.
+     */
+    long getPlanningBudget(DroneSettings settings, TimeUnit unit);
+
+    /**
+     * Prepares the structures needed by the drones of {@code map}, which is not
+     * changed, and returns the function creating a drone on a copy of it.
+     * The work done once per map here is not repeated for each drone.
+     *
+     * @return function creating a drone on a copy of {@code map}
+     */
+    Function<GameMap, Drone> prepare(GameMap map, DroneSettings settings);
+
+    /**
+     * Returns the factory named {@code name}, or {@code null} if there is none.
+     *
+     * @return the factory or {@code null}
+     */
+    static DroneFactory forName(String name) {
+        for (DroneFactory factory : ServiceLoader.load(DroneFactory.class))
+            if (factory.getName().equals(name))
+                return factory;
+        return null;
+    }
+
+    /**
+     * Returns the names of all factories found.
+     *
+     * @return list of names
+     */
+    static List<String> names() {
+        List<String> result = new ArrayList<>();
+        for (DroneFactory factory : ServiceLoader.load(DroneFactory.class))
+            result.add(factory.getName());
+        return result;
+    }
+}
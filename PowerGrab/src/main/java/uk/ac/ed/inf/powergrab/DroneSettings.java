@@ -0,0 +1,119 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The settings of the drones created by {@link DroneFactory}s. Settings
+ * which do not apply to a type of drone are ignored by its factory.
+ */
+public class DroneSettings {
+    public final Position initialPosition;
+    public final double initialCoins, initialPower;
+    public final int maxMoves;
+    private int beamWidth = 0, maxNodes = Integer.MAX_VALUE;
+    private long planningBudget = Long.MAX_VALUE;
+    private Executor background = null;
+    private Metrics metrics = null;
+
+    /**
+     * Creates the settings of drones starting with the given position and resources.
+     *
+     * @param maxMoves the maximum number of moves the drones are allowed to make
+     * @throws NullPointerException if {@code initialPosition} is {@code null}
+     */
+    public DroneSettings(Position initialPosition, double initialCoins, double initialPower, int maxMoves) {
+        if (initialPosition == null) throw new NullPointerException();
+        if (maxMoves < 0) throw new IllegalArgumentException();
+        this.initialPosition = initialPosition;
+        this.initialCoins = initialCoins;
+        this.initialPower = initialPower;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Creates a copy of the given {@code settings}.
+     */
+    public DroneSettings(DroneSettings settings) {
+        this(settings.initialPosition, settings.initialCoins, settings.initialPower, settings.maxMoves);
+        beamWidth = settings.beamWidth;
+        maxNodes = settings.maxNodes;
+        planningBudget = settings.planningBudget;
+        background = settings.background;
+        metrics = settings.metrics;
+    }
+
+    public int getBeamWidth() { return beamWidth; }
+
+    /**
+     * Sets the width of the beam search used for finding paths,
+     * or {@code 0} for a best-first search, which is the default.
+     *
+     * @throws IllegalArgumentException if {@code beamWidth} is negative
+     */
+    public void setBeamWidth(int beamWidth) {
+        if (beamWidth < 0) throw new IllegalArgumentException();
+        this.beamWidth = beamWidth;
+    }
+
+    public int getMaxNodes() { return maxNodes; }
+
+    /**
+     * Sets the maximum number of nodes held by the searches for paths,
+     * or {@link Integer#MAX_VALUE} for no limit, which is the default.
+     *
+     * @throws IllegalArgumentException if {@code maxNodes} is less than two
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 2) throw new IllegalArgumentException();
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns the maximum time drones may spend choosing a move,
+     * or {@link Long#MAX_VALUE} if unbounded.
+     */
+    public long getPlanningBudget(TimeUnit unit) {
+        return planningBudget == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(planningBudget, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time drones may spend choosing a move, unbounded by default.
+     *
+     * @throws IllegalArgumentException if {@code planningBudget} is negative
+     */
+    public void setPlanningBudget(long planningBudget, TimeUnit unit) {
+        if (planningBudget < 0) throw new IllegalArgumentException();
+        this.planningBudget = unit.toNanos(planningBudget);
+    }
+
+    public Executor getBackground() { return background; }
+
+    /**
+     * Sets the executor drones may use for planning between their moves,
+     * or {@code null}, which is the default.
+     */
+    public void setBackground(Executor background) {
+        this.background = background;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the drones record their planning in,
+     * or {@code null}, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,125 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import org.json.JSONArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes a {@link GeoJson} map with the trace of a drone's moves, writing the
+ * coordinates of the trace as the moves are made. The output is the same as
+ * {@link GeoJson#addMoves} followed by {@link GeoJson#write}.
+ *
+ * <p>The document is written by hand rather than built as text first, and the
+ * numbers are formatted by {@link DoubleFormat}. The features of the map are written
+ * when the writer is created and the rest of the document when it is closed,
+ * so the writer has to be closed even if the simulation fails.
+ */
+public class FlightPathWriter implements Simulation.MoveListener, Closeable {
+    private static final String FEATURES = "features";
+
+    private final GeoJson geoJson;
+    private final Writer writer;
+    private final JsonWriter json;
+    private boolean first = true;
+
+    /**
+     * Creates a {@code FlightPathWriter} writing {@code geoJson} to {@code writer},
+     * which should be buffered and is closed when this is closed, or if this fails.
+     * {@code geoJson} should not be changed until this is closed.
+     *
+     * @throws IOException if an I/O exception occurs while writing the features
+     * @throws org.json.JSONException if {@code geoJson} has no features
+     */
+    public FlightPathWriter(GeoJson geoJson, Writer writer) throws IOException {
+        this.geoJson = geoJson;
+        this.writer = writer;
+        this.json = new JsonWriter(writer);
+        try {
+            JSONArray features = (JSONArray) geoJson.get(FEATURES);
+            json.write('{');
+            for (String key : geoJson.keys()) {
+                if (key.equals(FEATURES)) break;
+                json.writeKey(key);
+                json.writeValue(geoJson.get(key));
+                json.write(',');
+            }
+            json.writeKey(FEATURES);
+            json.write('[');
+            for (int i = 0; i < features.length(); i++) {
+                json.writeValue(features.get(i));
+                json.write(',');
+            }
+            // the trace is the last feature, in the order JSONObject writes it
+            json.write("{\"geometry\":{\"coordinates\":[");
+        } catch (Throwable e) {
+            // the writer is not closed by the caller if this fails
+            try {
+                writer.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the coordinates of a move.
+     *
+     * @throws UncheckedIOException if an I/O exception occurs while writing
+     */
+    @Override
+    public void move(Position before, Direction direction, Position after, double coins, double power) {
+        try {
+            if (first) {
+                writeCoordinates(before);
+                first = false;
+            }
+            json.write(',');
+            writeCoordinates(after);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCoordinates(Position position) throws IOException {
+        json.write('[');
+        json.writeNumber(position.longitude);
+        json.write(',');
+        json.writeNumber(position.latitude);
+        json.write(']');
+    }
+
+    /**
+     * Writes the rest of the document and closes the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            json.write("],\"type\":\"LineString\"},\"type\":\"Feature\",\"properties\":{}}]");
+            boolean features = false;
+            for (String key : geoJson.keys()) {
+                if (features) {
+                    json.write(',');
+                    json.writeKey(key);
+                    json.writeValue(geoJson.get(key));
+                } else {
+                    features = key.equals(FEATURES);
+                }
+            }
+            json.write('}');
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -8,29 +8,92 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * A map of the play area, contains {@link Station}s.
+ *
+ * <p>The immutable {@link MapLayout} of the stations is shared with the copies
+ * of the map, while the resources of the stations are held by each map in arrays
+ * indexed by station, so copying a map only copies these arrays.
  */
 public class GameMap {
+    /**
+     * The layout of the stations of this map
+     */
+    public final MapLayout layout;
+    /**
+     * The stations of this map, the list cannot be modified. The stations
+     * are views of the resources held by this map.
+     */
     public final List<Station> stations;
+    private final double[] coins, power;
+    /**
+     * The stations of {@link #stations}, created when first requested, and
+     * published safely as a map may be read by several threads
+     */
+    private volatile Station[] views;
+
+    /**
+     * Creates a map containing the given stations.
+     */
+    public GameMap(List<Station> stations) {
+        this(new MapLayout(stations));
+    }
 
     /**
-     * Creates an empty map.
+     * Creates a map of the given {@code layout} with the initial resources.
      */
-    public GameMap() {
-        this.stations = new ArrayList<>();
+    public GameMap(MapLayout layout) {
+        this(layout, layout.copyInitialCoins(), layout.copyInitialPower());
     }
 
     /**
-     * Creates a map and copies the stations from the given map.
+     * Creates a map and copies the resources of the stations from the given map.
      */
     public GameMap(GameMap map) {
-        this.stations = new ArrayList<>(map.stations.size());
-        for (Station station : map.stations)
-            this.stations.add(new Station(station));
+        // the positions of the stations are the same so the layout can be shared
+        this(map.layout, map.coins.clone(), map.power.clone());
+    }
+
+    private GameMap(MapLayout layout, double[] coins, double[] power) {
+        this.layout = layout;
+        this.coins = coins;
+        this.power = power;
+        this.stations = new StationList();
+    }
+
+    /**
+     * Returns the coins held by the station at index {@code station}.
+     *
+     * @return coins of the station
+     */
+    public double getCoins(int station) { return coins[station]; }
+
+    /**
+     * Returns the power held by the station at index {@code station}.
+     *
+     * @return power of the station
+     */
+    public double getPower(int station) { return power[station]; }
+
+    /**
+     * Transfers coins and power between the station at index {@code station}
+     * and the {@code drone}. The drone gains the resources of the station, or
+     * loses at most what it holds if they are negative, and the station is left
+     * with what the drone could not cover.
+     */
+    public void connect(int station, Drone drone) {
+        double droneCoins = drone.getCoins(), dronePower = drone.getPower();
+        drone.addCoins(coins[station]);
+        drone.addPower(power[station]);
+        double newCoins = coins[station] + droneCoins, newPower = power[station] + dronePower;
+        // if coins or power end up positive it means that all of the resource
+        // has been transferred and the station will be empty
+        coins[station] = newCoins > 0.0 ? 0.0 : newCoins;
+        power[station] = newPower > 0.0 ? 0.0 : newPower;
     }
 
     /**
@@ -40,16 +103,16 @@ public class GameMap {
      * @return station closest to {@code position} or {@code null}
      */
     public Station nearestStation(Position position) {
-        Station result = null;
+        int result = -1;
         double shortestDistance = Double.POSITIVE_INFINITY;
-        for (Station station : stations) {
-            double distance = station.position.distance(position);
+        for (int i = 0; i < layout.size(); i++) {
+            double distance = layout.getPosition(i).distance(position);
             if (distance < shortestDistance) {
                 shortestDistance = distance;
-                result = station;
+                result = i;
             }
         }
-        return result;
+        return result < 0 ? null : stations.get(result);
     }
 
     /**
@@ -58,12 +121,52 @@ public class GameMap {
      * to occur, as defined in {@link GameRules}.
      * Returns {@code null} if no such station is found.
      *
+     * <p>Only the stations near {@code position} are considered,
+     * using a grid over the positions of the stations.
+     *
      * @return station close to {@code position} or {@code null}
      */
     public Station closeStation(Position position) {
-        Station nearest = nearestStation(position);
-        if (nearest != null && nearest.position.distance(position) < GameRules.closeDistance)
-            return nearest;
-        return null;
+        return closeStation(position.latitude, position.longitude);
+    }
+
+    /**
+     * Returns the {@link Station} in this map whose position is closest
+     * to the given coordinates, as {@link #closeStation(Position)}.
+     *
+     * @return station close to the coordinates or {@code null}
+     */
+    public Station closeStation(double latitude, double longitude) {
+        int index = layout.closeStation(latitude, longitude);
+        return index < 0 ? null : stations.get(index);
+    }
+
+    /**
+     * The list of the stations of this map, which creates
+     * the views of the stations when first accessed.
+     */
+    private final class StationList extends AbstractList<Station> implements RandomAccess {
+        @Override
+        public Station get(int index) {
+            Station[] result = views;
+            if (result == null) {
+                synchronized (this) {
+                    // every thread gets the same views
+                    result = views;
+                    if (result == null) {
+                        result = new Station[layout.size()];
+                        for (int i = 0; i < result.length; i++)
+                            result[i] = new Station(GameMap.this, i);
+                        views = result;
+                    }
+                }
+            }
+            return result[index];
+        }
+
+        @Override
+        public int size() {
+            return layout.size();
+        }
     }
 }
@@ -27,8 +27,21 @@ public class GameRules {
      */
     public static final double moveDistance = 0.0003;
 
+    private static final double playAreaTop = 55.946233, playAreaLeft = -3.192473,
+            playAreaBottom = 55.942617, playAreaRight = -3.184319;
+
     /**
      * The area a drone can move within
      */
-    public static final Rectangle playArea = new Rectangle(55.946233, -3.192473, 55.942617, -3.184319);
+    public static final Rectangle playArea = new Rectangle(playAreaTop, playAreaLeft, playAreaBottom, playAreaRight);
+
+    /**
+     * Returns {@code true} if the given coordinates are within the {@link #playArea}.
+     *
+     * @return {@code true} if the coordinates are within the play area
+     */
+    public static boolean inPlayArea(double latitude, double longitude) {
+        return latitude < playAreaTop && latitude > playAreaBottom
+            && longitude > playAreaLeft && longitude < playAreaRight;
+    }
 }
@@ -10,12 +10,13 @@ package uk.ac.ed.inf.powergrab;
 
 import org.json.*;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * Stores the contents of a GeoJSON file.
@@ -32,9 +33,10 @@ public class GeoJson {
 
     /**
      * Creates a {@code GeoJson} object from a map encoded in a {@linkplain JSONObject JSON object}.
+     * The object is copied so later changes to either do not affect the other.
      */
     public GeoJson(JSONObject json) {
-        this(json.toString());
+        featureCollection = (JSONObject) copy(json);
     }
 
     /**
@@ -50,12 +52,9 @@ public class GeoJson {
      * @throws IOException if an I/O exception occurs while downloading the map
      */
     public GeoJson(URL url) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        Scanner scanner = new Scanner(url.openStream());
-        while (scanner.hasNext())
-            builder.append(scanner.next());
-        scanner.close();
-        featureCollection = new JSONObject(builder.toString());
+        try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+            featureCollection = new JSONObject(new JSONTokener(reader));
+        }
     }
 
     /**
@@ -64,19 +63,42 @@ public class GeoJson {
      * @throws IOException if an I/O exception occurs while loading the map
      */
     public GeoJson(Path file) throws IOException {
-        this(new String(Files.readAllBytes(file)));
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            featureCollection = new JSONObject(new JSONTokener(reader));
+        }
+    }
+
+    /**
+     * Returns a deep copy of a value of a {@link JSONObject} or {@link JSONArray}.
+     */
+    private static Object copy(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value, result = new JSONObject();
+            for (String key : object.keySet())
+                result.put(key, copy(object.get(key)));
+            return result;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value, result = new JSONArray();
+            for (int i = 0; i < array.length(); i++)
+                result.put(copy(array.get(i)));
+            return result;
+        }
+        // strings, numbers, booleans and null are immutable
+        return value;
     }
 
     /**
      * Returns a {@link GameMap} containing the stations in the GeoJSON file.
      *
      * @see GameMap
+     * @see GeoJsonReader
      * @throws JSONException if decoding fails
      * @return map of stations
      */
     public GameMap getMap() {
-        GameMap map = new GameMap();
         JSONArray features = featureCollection.getJSONArray("features");
+        List<Station> stations = new ArrayList<>(features.length());
         for (int i = 0; i < features.length(); i++) {
             JSONObject feature = features.getJSONObject(i);
             JSONObject properties = feature.getJSONObject("properties");
@@ -87,16 +109,15 @@ public class GeoJson {
             double longitude = coordinates.getDouble(0);
             double latitude = coordinates.getDouble(1);
             Position position = new Position(latitude, longitude);
-            map.stations.add(new Station(id, position, coins, power));
+            stations.add(new Station(id, position, coins, power));
         }
-        return map;
+        return new GameMap(stations);
     }
 
     /**
      * Adds a trace of a drone's moves.
      */
     public void addMoves(List<Simulation.Move> moves) {
-        JSONArray features = featureCollection.getJSONArray("features");
         JSONArray coordinates = new JSONArray();
         boolean first = true;
         for (Simulation.Move move : moves) {
@@ -112,13 +133,20 @@ public class GeoJson {
             }
             coordinates.put(after);
         }
+        featureCollection.getJSONArray("features").put(lineString(coordinates));
+    }
+
+    /**
+     * Returns a feature of a line through the given coordinates.
+     */
+    private static JSONObject lineString(Object coordinates) {
         JSONObject geometry = new JSONObject(), line = new JSONObject();
         geometry.put("type", "LineString");
         geometry.put("coordinates", coordinates);
         line.put("type", "Feature");
         line.put("geometry", geometry);
         line.put("properties", new JSONObject());
-        features.put(line);
+        return line;
     }
 
     /**
@@ -128,6 +156,37 @@ public class GeoJson {
      */
     @Override
     public String toString() {
-        return featureCollection.toString();
+        StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes this GeoJSON to {@code writer}, which is not closed.
+     *
+     * @throws IOException if an I/O exception occurs while writing
+     */
+    public void write(Writer writer) throws IOException {
+        new JsonWriter(writer).writeValue(featureCollection);
+    }
+
+    /**
+     * Returns the keys of the feature collection in the order they are written.
+     */
+    Iterable<String> keys() {
+        return featureCollection.keySet();
+    }
+
+    /**
+     * Returns the value of {@code key} in the feature collection.
+     *
+     * @throws JSONException if the key is not found
+     */
+    Object get(String key) {
+        return featureCollection.get(key);
     }
 }
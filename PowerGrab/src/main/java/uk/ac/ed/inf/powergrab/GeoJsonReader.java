@@ -0,0 +1,514 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the {@link Station}s of a map from a GeoJSON document as it is being
+ * read, without building the document in memory. Only the {@code id},
+ * {@code coins} and {@code power} properties and the coordinates of each
+ * feature are decoded, everything else is skipped.
+ *
+ * @see GeoJson#getMap
+ */
+public class GeoJsonReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The powers of ten which doubles represent exactly
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private final InputStream inputStream;
+    private final ReadableByteChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position = 0, limit = 0;
+    /**
+     * The number of bytes read before the ones in the buffer
+     */
+    private long offset = 0;
+    /**
+     * The last string or number read, encoded in UTF-8
+     */
+    private byte[] text = new byte[64];
+    private int textLength = 0;
+
+    /**
+     * Creates a {@code GeoJsonReader} which reads from {@code inputStream}.
+     */
+    public GeoJsonReader(InputStream inputStream) {
+        if (inputStream == null) throw new NullPointerException();
+        this.inputStream = inputStream;
+        this.channel = null;
+    }
+
+    /**
+     * Creates a {@code GeoJsonReader} which reads from {@code channel}.
+     */
+    public GeoJsonReader(ReadableByteChannel channel) {
+        if (channel == null) throw new NullPointerException();
+        this.inputStream = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the map loaded from {@code file}.
+     *
+     * @throws IOException if an I/O exception occurs while loading the map
+     * @throws JSONException if decoding fails
+     * @return map of stations
+     */
+    public static GameMap readMap(Path file) throws IOException {
+        try (GeoJsonReader reader = new GeoJsonReader(FileChannel.open(file))) {
+            return reader.readMap();
+        }
+    }
+
+    /**
+     * Reads the map downloaded from {@code url}.
+     *
+     * @throws IOException if an I/O exception occurs while downloading the map
+     * @throws JSONException if decoding fails
+     * @return map of stations
+     */
+    public static GameMap readMap(URL url) throws IOException {
+        try (GeoJsonReader reader = new GeoJsonReader(url.openStream())) {
+            return reader.readMap();
+        }
+    }
+
+    /**
+     * Reads a {@link GameMap} containing the stations in the GeoJSON document,
+     * which has to be followed by nothing but whitespace.
+     *
+     * @throws IOException if an I/O exception occurs while reading
+     * @throws JSONException if decoding fails
+     * @return map of stations
+     */
+    public GameMap readMap() throws IOException {
+        List<Station> stations = null;
+        expect(nextToken(), '{');
+        int c = nextToken();
+        if (c != '}') {
+            while (true) {
+                readKey(c);
+                if (textEquals("features")) {
+                    stations = readFeatures();
+                } else {
+                    skipValue(nextToken());
+                }
+                c = nextToken();
+                if (c == '}') break;
+                expect(c, ',');
+                c = nextToken();
+            }
+        }
+        if (nextToken() != -1)
+            throw syntaxError("Expected end of input");
+        if (stations == null)
+            throw new JSONException("JSONObject[\"features\"] not found.");
+        return new GameMap(stations);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null)
+            inputStream.close();
+        else
+            channel.close();
+    }
+
+    private List<Station> readFeatures() throws IOException {
+        List<Station> stations = new ArrayList<>();
+        expect(nextToken(), '[');
+        int c = nextToken();
+        if (c == ']') return stations;
+        while (true) {
+            stations.add(readFeature(c));
+            c = nextToken();
+            if (c == ']') return stations;
+            expect(c, ',');
+            c = nextToken();
+        }
+    }
+
+    private Station readFeature(int c) throws IOException {
+        String id = null;
+        double coins = 0.0, power = 0.0, latitude = 0.0, longitude = 0.0;
+        boolean hasCoins = false, hasPower = false, hasCoordinates = false;
+        expect(c, '{');
+        c = nextToken();
+        while (c != '}') {
+            readKey(c);
+            if (textEquals("properties")) {
+                expect(nextToken(), '{');
+                c = nextToken();
+                while (c != '}') {
+                    readKey(c);
+                    if (textEquals("id")) {
+                        expect(nextToken(), '"');
+                        readString();
+                        id = new String(text, 0, textLength, StandardCharsets.UTF_8);
+                    } else if (textEquals("coins")) {
+                        coins = readDouble(nextToken());
+                        hasCoins = true;
+                    } else if (textEquals("power")) {
+                        power = readDouble(nextToken());
+                        hasPower = true;
+                    } else {
+                        skipValue(nextToken());
+                    }
+                    c = nextMember(nextToken());
+                }
+            } else if (textEquals("geometry")) {
+                expect(nextToken(), '{');
+                c = nextToken();
+                while (c != '}') {
+                    readKey(c);
+                    if (textEquals("coordinates")) {
+                        expect(nextToken(), '[');
+                        longitude = readDouble(nextToken());
+                        expect(nextToken(), ',');
+                        latitude = readDouble(nextToken());
+                        hasCoordinates = true;
+                        c = nextToken();
+                        while (c == ',') {
+                            skipValue(nextToken());
+                            c = nextToken();
+                        }
+                        expect(c, ']');
+                    } else {
+                        skipValue(nextToken());
+                    }
+                    c = nextMember(nextToken());
+                }
+            } else {
+                skipValue(nextToken());
+            }
+            c = nextMember(nextToken());
+        }
+        if (id == null || !hasCoins || !hasPower || !hasCoordinates)
+            throw syntaxError("Incomplete feature");
+        return new Station(id, new Position(latitude, longitude), coins, power);
+    }
+
+    /**
+     * Returns the first character of the next key of an object, or the end of the object.
+     */
+    private int nextMember(int c) throws IOException {
+        if (c == '}') return c;
+        expect(c, ',');
+        return nextToken();
+    }
+
+    /**
+     * Reads a key of an object and the following colon, the key is stored in {@link #text}.
+     */
+    private void readKey(int c) throws IOException {
+        expect(c, '"');
+        readString();
+        expect(nextToken(), ':');
+    }
+
+    /**
+     * Reads a number, or a string containing a number.
+     */
+    private double readDouble(int c) throws IOException {
+        if (c == '"')
+            readString();
+        else
+            readNumber(c);
+        return parseDouble();
+    }
+
+    /**
+     * Parses the number in {@link #text}. A decimal number of at most 18 significant
+     * digits, which cannot overflow a {@code long}, is parsed from its digits when both
+     * the digits and the power of ten are exact doubles, as their product or quotient
+     * is then correctly rounded. Other numbers are left to {@link Double#parseDouble}.
+     */
+    private double parseDouble() {
+        int i = 0;
+        boolean negative = false;
+        if (i < textLength && (text[i] == '-' || text[i] == '+'))
+            negative = text[i++] == '-';
+        long mantissa = 0L;
+        int digits = 0, exponent = 0;
+        boolean hasDigits = false, fraction = false;
+        for (; i < textLength; i++) {
+            int b = text[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (b < '0' || b > '9')
+                break;
+            hasDigits = true;
+            // leading zeros are not significant
+            if (mantissa != 0L || b != '0') {
+                if (++digits > 18)
+                    return parseSlowly();
+                mantissa = mantissa * 10 + (b - '0');
+            }
+            if (fraction)
+                exponent--;
+        }
+        if (!hasDigits)
+            return parseSlowly();
+        if (i < textLength && (text[i] == 'e' || text[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < textLength && (text[i] == '-' || text[i] == '+'))
+                negativeExponent = text[i++] == '-';
+            int value = 0, start = i;
+            for (; i < textLength && text[i] >= '0' && text[i] <= '9' && value < 1000; i++)
+                value = value * 10 + (text[i] - '0');
+            if (i == start)
+                return parseSlowly();
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != textLength)
+            return parseSlowly();
+        double result;
+        if (mantissa == 0L)
+            result = 0.0;
+        else if (mantissa > 1L << 53 || exponent < -22 || exponent > 22)
+            return parseSlowly();
+        else
+            result = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -result : result;
+    }
+
+    private double parseSlowly() {
+        try {
+            return Double.parseDouble(new String(text, 0, textLength, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Not a number");
+        }
+    }
+
+    /**
+     * Skips the value starting with {@code c}.
+     */
+    private void skipValue(int c) throws IOException {
+        switch (c) {
+            case '"':
+                readString();
+                break;
+            case '{':
+                c = nextToken();
+                while (c != '}') {
+                    readKey(c);
+                    skipValue(nextToken());
+                    c = nextMember(nextToken());
+                }
+                break;
+            case '[':
+                c = nextToken();
+                if (c == ']') break;
+                while (true) {
+                    skipValue(c);
+                    c = nextToken();
+                    if (c == ']') break;
+                    expect(c, ',');
+                    c = nextToken();
+                }
+                break;
+            default:
+                if (c >= 'a' && c <= 'z') {
+                    // true, false or null
+                    while (peek() >= 'a' && peek() <= 'z')
+                        read();
+                } else {
+                    readNumber(c);
+                }
+        }
+    }
+
+    /**
+     * Reads the characters of a number starting with {@code c} into {@link #text}.
+     */
+    private void readNumber(int c) throws IOException {
+        textLength = 0;
+        while (isNumberCharacter(c)) {
+            append(c);
+            if (!isNumberCharacter(peek())) break;
+            c = read();
+        }
+        if (textLength == 0)
+            throw syntaxError("Unexpected character");
+    }
+
+    private static boolean isNumberCharacter(int c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    /**
+     * Reads a string after its opening quote into {@link #text}, decoding escape sequences.
+     */
+    private void readString() throws IOException {
+        textLength = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') return;
+            if (c < 0) throw syntaxError("Unterminated string");
+            if (c != '\\') {
+                append(c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case 'b': append('\b'); break;
+                case 'f': append('\f'); break;
+                case 'n': append('\n'); break;
+                case 'r': append('\r'); break;
+                case 't': append('\t'); break;
+                case 'u':
+                    int codePoint = readHex();
+                    if (Character.isHighSurrogate((char) codePoint) && peek() == '\\') {
+                        read();
+                        expect(read(), 'u');
+                        int low = readHex();
+                        if (Character.isLowSurrogate((char) low)) {
+                            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                        } else {
+                            appendCodePoint(codePoint);
+                            codePoint = low;
+                        }
+                    }
+                    appendCodePoint(codePoint);
+                    break;
+                case '"': case '\\': case '/':
+                    append(c);
+                    break;
+                default:
+                    throw syntaxError("Illegal escape");
+            }
+        }
+    }
+
+    private int readHex() throws IOException {
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) throw syntaxError("Illegal escape");
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of {@code codePoint} to {@link #text}.
+     */
+    private void appendCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            append(codePoint);
+        } else if (codePoint < 0x800) {
+            append(0xc0 | (codePoint >> 6));
+            append(0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            append(0xe0 | (codePoint >> 12));
+            append(0x80 | ((codePoint >> 6) & 0x3f));
+            append(0x80 | (codePoint & 0x3f));
+        } else {
+            append(0xf0 | (codePoint >> 18));
+            append(0x80 | ((codePoint >> 12) & 0x3f));
+            append(0x80 | ((codePoint >> 6) & 0x3f));
+            append(0x80 | (codePoint & 0x3f));
+        }
+    }
+
+    private void append(int b) {
+        if (textLength == text.length)
+            text = Arrays.copyOf(text, text.length * 2);
+        text[textLength++] = (byte) b;
+    }
+
+    private boolean textEquals(String key) {
+        if (textLength != key.length()) return false;
+        for (int i = 0; i < textLength; i++)
+            if (text[i] != key.charAt(i))
+                return false;
+        return true;
+    }
+
+    private void expect(int c, char expected) {
+        if (c != expected)
+            throw syntaxError("Expected '" + expected + "'");
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at byte " + (offset + position));
+    }
+
+    /**
+     * Returns the next character which is not whitespace, or {@code -1} at the end of input.
+     */
+    private int nextToken() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    /**
+     * Returns the next byte without consuming it, or {@code -1} at the end of input.
+     */
+    private int peek() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position] & 0xff;
+    }
+
+    /**
+     * Returns and consumes the next byte, or {@code -1} at the end of input.
+     */
+    private int read() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position++] & 0xff;
+    }
+
+    /**
+     * Refills the buffer, returns {@code false} at the end of input.
+     */
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = limit = 0;
+        int count;
+        do {
+            if (inputStream != null) {
+                count = inputStream.read(buffer);
+            } else {
+                byteBuffer.clear();
+                count = channel.read(byteBuffer);
+            }
+        } while (count == 0);
+        if (count < 0) return false;
+        limit = count;
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON values to a {@link Writer} without building the text of the
+ * document in memory. The output is the same as that of {@link JSONObject#toString()},
+ * except that doubles are formatted by {@link DoubleFormat}.
+ */
+final class JsonWriter {
+    private final Writer writer;
+    private final char[] buffer = new char[DoubleFormat.MAX_CHARS];
+
+    JsonWriter(Writer writer) {
+        if (writer == null) throw new NullPointerException();
+        this.writer = writer;
+    }
+
+    void write(char c) throws IOException {
+        writer.write(c);
+    }
+
+    void write(String text) throws IOException {
+        writer.write(text);
+    }
+
+    /**
+     * Writes a key of an object followed by a colon.
+     */
+    void writeKey(String key) throws IOException {
+        JSONObject.quote(key, writer);
+        writer.write(':');
+    }
+
+    void writeNumber(double value) throws IOException {
+        writer.write(buffer, 0, DoubleFormat.format(value, buffer, 0));
+    }
+
+    /**
+     * Writes a value of a {@link JSONObject} or {@link JSONArray}.
+     */
+    void writeValue(Object value) throws IOException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            JSONObject.quote((String) value, writer);
+        } else if (value instanceof Double || value instanceof Float) {
+            writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            // big decimals keep the digits they were read with
+            writer.write(JSONObject.numberToString((Number) value));
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            writer.write('{');
+            boolean first = true;
+            for (String key : object.keySet()) {
+                if (!first) writer.write(',');
+                first = false;
+                writeKey(key);
+                writeValue(object.get(key));
+            }
+            writer.write('}');
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            writer.write('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) writer.write(',');
+                writeValue(array.get(i));
+            }
+            writer.write(']');
+        } else if (value instanceof JSONString) {
+            writer.write(((JSONString) value).toJSONString());
+        } else {
+            // booleans and anything else JSONObject writes as text
+            writer.write(value.toString());
+        }
+    }
+}
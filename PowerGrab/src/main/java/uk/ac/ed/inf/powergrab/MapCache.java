@@ -0,0 +1,162 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches the stations of GeoJSON maps in a compact binary file next to
+ * the GeoJSON file, which is memory-mapped when loaded.
+ *
+ * <p>The cache file stores the size and last modified time of the GeoJSON
+ * file it was created from, and the stations as packed columns:
+ * <ol>
+ *  <li>the header: magic number, version, GeoJSON size and last modified time,
+ *      and the number of stations {@code n};</li>
+ *  <li>{@code n} latitudes, {@code n} longitudes, {@code n} coins, {@code n} powers;</li>
+ *  <li>{@code n + 1} offsets of the ids;</li>
+ *  <li>the ids encoded in UTF-8.</li>
+ * </ol>
+ * If the GeoJSON file has been modified since the cache file was created,
+ * the map is loaded from the GeoJSON file and the cache is recreated.
+ */
+public class MapCache {
+    private static final int MAGIC = 0x50474d43, VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    private static final String EXTENSION = ".bin";
+
+    private MapCache() {}
+
+    /**
+     * Returns the path of the cache file for the GeoJSON {@code file}.
+     *
+     * @return path of the cache file
+     */
+    public static Path cacheFile(Path file) {
+        return file.resolveSibling(file.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads the map from the cache of the GeoJSON {@code file} if it is up to date,
+     * otherwise loads the GeoJSON file and recreates the cache.
+     * Failing to write the cache does not prevent the map from being loaded.
+     *
+     * @throws IOException if an I/O exception occurs while loading the map
+     * @throws org.json.JSONException if decoding the GeoJSON file fails
+     * @return map of stations
+     */
+    public static GameMap load(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size(), modified = attributes.lastModifiedTime().toMillis();
+        Path cache = cacheFile(file);
+        GameMap map = read(cache, size, modified);
+        if (map != null) return map;
+        map = GeoJsonReader.readMap(file);
+        try {
+            write(cache, map, size, modified);
+        } catch (IOException e) {
+            // the cache is only an optimisation, the map can still be used
+        }
+        return map;
+    }
+
+    /**
+     * Reads the map from the {@code cache} file, or returns {@code null} if the file
+     * does not exist, is invalid, or was not created from a GeoJSON file with the
+     * given {@code size} and {@code modified} time.
+     */
+    static GameMap read(Path cache, long size, long modified) throws IOException {
+        if (!Files.isRegularFile(cache)) return null;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != size || buffer.getLong() != modified)
+                return null;
+            int count = buffer.getInt();
+            long idsOffset = HEADER_SIZE + 32L * count;
+            if (count < 0 || idsOffset + 4L * (count + 1) > buffer.limit())
+                return null;
+            int latitudes = HEADER_SIZE, longitudes = latitudes + 8 * count;
+            int coins = longitudes + 8 * count, powers = coins + 8 * count;
+            int ids = (int) idsOffset, idBytes = ids + 4 * (count + 1);
+            List<Station> stations = new ArrayList<>(count);
+            byte[] id = new byte[0];
+            for (int i = 0; i < count; i++) {
+                int start = buffer.getInt(ids + 4 * i), end = buffer.getInt(ids + 4 * (i + 1));
+                if (start < 0 || end < start || (long) idBytes + end > buffer.limit())
+                    return null;
+                if (id.length < end - start)
+                    id = new byte[end - start];
+                buffer.position(idBytes + start);
+                buffer.get(id, 0, end - start);
+                Position position = new Position(buffer.getDouble(latitudes + 8 * i),
+                        buffer.getDouble(longitudes + 8 * i));
+                stations.add(new Station(new String(id, 0, end - start, StandardCharsets.UTF_8), position,
+                        buffer.getDouble(coins + 8 * i), buffer.getDouble(powers + 8 * i)));
+            }
+            return new GameMap(stations);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null; // truncated file
+        }
+    }
+
+    /**
+     * Writes the {@code map} to the {@code cache} file, recording the {@code size}
+     * and {@code modified} time of the GeoJSON file it was loaded from.
+     * The file is replaced atomically so concurrent readers never see a partial file.
+     *
+     * @throws IOException if an I/O exception occurs while writing the file
+     */
+    static void write(Path cache, GameMap map, long size, long modified) throws IOException {
+        int count = map.stations.size();
+        byte[][] ids = new byte[count][];
+        int idsLength = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = map.stations.get(i).id.getBytes(StandardCharsets.UTF_8);
+            idsLength += ids[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 36 * count + 4 + idsLength);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putInt(count);
+        for (Station station : map.stations)
+            buffer.putDouble(station.position.latitude);
+        for (Station station : map.stations)
+            buffer.putDouble(station.position.longitude);
+        for (Station station : map.stations)
+            buffer.putDouble(station.getCoins());
+        for (Station station : map.stations)
+            buffer.putDouble(station.getPower());
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] id : ids)
+            buffer.putInt(offset += id.length);
+        for (byte[] id : ids)
+            buffer.put(id);
+        buffer.flip();
+        Path temporary = Files.createTempFile(cache.toAbsolutePath().getParent(),
+                cache.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
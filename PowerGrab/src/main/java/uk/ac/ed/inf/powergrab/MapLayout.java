@@ -0,0 +1,86 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.util.List;
+
+/**
+ * The immutable part of a map: the ids and positions of the stations,
+ * their initial resources and the grid used for finding close stations.
+ * Stations are referred to by their index.
+ *
+ * <p>A layout is shared by all {@link GameMap}s created from it, which hold the
+ * resources of the stations as they change during a simulation. Many simulations
+ * can therefore run on the same layout concurrently without copying or locking.
+ */
+public final class MapLayout {
+    private final String[] ids;
+    private final Position[] positions;
+    private final double[] coins, power;
+    private final StationGrid grid;
+
+    /**
+     * Creates a layout of the given {@code stations}, with their current
+     * resources as the initial resources.
+     */
+    public MapLayout(List<Station> stations) {
+        int size = stations.size();
+        ids = new String[size];
+        positions = new Position[size];
+        coins = new double[size];
+        power = new double[size];
+        for (int i = 0; i < size; i++) {
+            Station station = stations.get(i);
+            ids[i] = station.id;
+            positions[i] = station.position;
+            coins[i] = station.getCoins();
+            power[i] = station.getPower();
+        }
+        grid = new StationGrid(stations);
+    }
+
+    /**
+     * Returns the number of stations.
+     *
+     * @return number of stations
+     */
+    public int size() { return ids.length; }
+
+    public String getId(int station) { return ids[station]; }
+
+    public Position getPosition(int station) { return positions[station]; }
+
+    public double getInitialCoins(int station) { return coins[station]; }
+
+    public double getInitialPower(int station) { return power[station]; }
+
+    /**
+     * Returns copies of the initial coins of the stations.
+     */
+    double[] copyInitialCoins() { return coins.clone(); }
+
+    /**
+     * Returns copies of the initial power of the stations.
+     */
+    double[] copyInitialPower() { return power.clone(); }
+
+    /**
+     * Returns the index of the station closest to the given coordinates if it is
+     * close enough for resource transfer to occur, as defined in {@link GameRules}.
+     * Returns {@code -1} if no such station is found.
+     *
+     * <p>Only the stations near the coordinates are considered,
+     * using a grid over the positions of the stations.
+     *
+     * @return index of station close to the coordinates or {@code -1}
+     */
+    public int closeStation(double latitude, double longitude) {
+        return grid.closeStation(latitude, longitude);
+    }
+}
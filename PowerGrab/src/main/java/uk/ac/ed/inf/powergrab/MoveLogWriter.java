@@ -0,0 +1,66 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the moves of a drone to a text log as they are made, one move per
+ * line in the format of {@link Simulation.Move#toString()}.
+ */
+public class MoveLogWriter implements Simulation.MoveListener, Closeable {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer writer;
+    private boolean firstLine = true;
+
+    /**
+     * Creates a {@code MoveLogWriter} writing to {@code writer}, which
+     * should be buffered and is closed when this is closed.
+     */
+    public MoveLogWriter(Writer writer) {
+        if (writer == null) throw new NullPointerException();
+        this.writer = writer;
+    }
+
+    /**
+     * Writes a move.
+     *
+     * @throws UncheckedIOException if an I/O exception occurs while writing
+     */
+    @Override
+    public void move(Position before, Direction direction, Position after, double coins, double power) {
+        try {
+            // the lines are separated rather than terminated
+            if (firstLine)
+                firstLine = false;
+            else
+                writer.write(LINE_SEPARATOR);
+            writer.write(before.toString());
+            writer.write(',');
+            writer.write(direction.name());
+            writer.write(',');
+            writer.write(after.toString());
+            writer.write(',');
+            writer.write(Double.toString(coins));
+            writer.write(',');
+            writer.write(Double.toString(power));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -30,9 +30,8 @@ public class Position implements TspSolver.Node<Position> {
      * @return position after a move
      */
     public Position nextPosition(Direction direction) {
-        // calculate the new position using the precomputed sin and cos
-        return new Position(latitude + direction.cos * GameRules.moveDistance,
-            longitude + direction.sin * GameRules.moveDistance);
+        // calculate the new position using the precomputed deltas
+        return new Position(latitude + direction.latitudeDelta, longitude + direction.longitudeDelta);
     }
 
     /**
@@ -43,7 +42,7 @@ public class Position implements TspSolver.Node<Position> {
      * @return {@code true} if this position is within the play area
      */
     public boolean inPlayArea() {
-        return GameRules.playArea.pointWithin(this);
+        return GameRules.inPlayArea(latitude, longitude);
     }
 
     /**
@@ -53,8 +52,18 @@ public class Position implements TspSolver.Node<Position> {
      * @return distance between two positions
      */
     public double distance(Position position) {
-        double dx = position.longitude - longitude;
-        double dy = position.latitude - latitude;
+        return distance(latitude, longitude, position.latitude, position.longitude);
+    }
+
+    /**
+     * Returns the distance between two positions given by their coordinates,
+     * calculated in the same way as {@link #distance(Position)}.
+     *
+     * @return distance between two positions
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dx = longitude2 - longitude1;
+        double dy = latitude2 - latitude1;
         return Math.sqrt(dx * dx + dy * dy);
     }
 
@@ -78,15 +87,36 @@ public class Position implements TspSolver.Node<Position> {
         if (this == obj) return true;
         if (obj instanceof Position) {
             Position other = (Position) obj;
-            // equal if distance is less than about 1 mm
-            return hashCode() == other.hashCode() && distance(other) < 1e-8;
+            return equal(latitude, longitude, other.latitude, other.longitude);
         }
         return false;
     }
 
+    /**
+     * Returns {@code true} if two positions given by their coordinates
+     * are considered equal by {@link #equals}.
+     *
+     * @return {@code true} if the distance between the positions is negligible
+     */
+    public static boolean equal(double latitude1, double longitude1, double latitude2, double longitude2) {
+        // equal if distance is less than about 1 mm
+        return hashCode(latitude1, longitude1) == hashCode(latitude2, longitude2)
+            && distance(latitude1, longitude1, latitude2, longitude2) < 1e-8;
+    }
+
     @Override
     public int hashCode() {
+        return hashCode(latitude, longitude);
+    }
+
+    /**
+     * Returns the hash code of a position given by its coordinates,
+     * the same as {@link #hashCode()}.
+     *
+     * @return hash code of the position
+     */
+    public static int hashCode(double latitude, double longitude) {
         // same hashcode if latitude and longitude equal with 1e-7 precision (about 1 cm)
-        return (int)(Math.round(this.latitude * 1e7) ^ Math.round(this.longitude * 1e7));
+        return (int)(Math.round(latitude * 1e7) ^ Math.round(longitude * 1e7));
     }
 }
@@ -8,33 +8,60 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab;
 
+import uk.ac.ed.inf.powergrab.jfr.FlightEvents;
+import uk.ac.ed.inf.powergrab.jfr.RunEvent;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class Program implements Runnable {
     private static final double INIT_COINS = 0.0, INIT_POWER = 250.0;
     private static final int MAX_MOVES = 250;
+    /**
+     * The names of the histogram of the time taken to load each map and the
+     * counter of the time spent writing the moves to the log files
+     */
+    private static final String MAP_LOAD_NANOS = "program.mapLoadNanos", OUTPUT_NANOS = "program.outputNanos";
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
 
     private final LocalDate firstDate, lastDate;
     private final Position initialPosition;
-    private final long seed;
-    private final String droneType;
+    private final long seed, firstSeed, lastSeed;
+    /**
+     * The factories of the types of drones simulated on each map
+     */
+    private final List<DroneFactory> drones;
+    private final DroneSettings settings;
+    /**
+     * The metrics of all simulations, or {@code null} if not recorded
+     */
+    private final Metrics metrics;
     private final Path localDirectory, logDirectory;
-    private final boolean writeLog, writeStats;
+    private final boolean writeLog, writeStats, useCache, sweepSeeds;
+    private final int threads;
 
     public static void main(String[] args) {
         if (args.length < 7) {
             System.err.println("Too few arguments!");
-            System.out.println("Usage: powergrab <day> <month> <year> <latitude> <longitude> <seed> <drone type> \\");
-            System.out.println("\t[-to <date>] [-dir <path>] [-o <path>] [-nolog] [-stats]");
+            System.out.println("Usage: powergrab <day> <month> <year> <latitude> <longitude> <seed> <drone type>[,...] \\");
+            System.out.println("\t[-to <date>] [-dir <path>] [-o <path>] [-nolog] [-stats] [-threads <n>] [-cache] \\");
+            System.out.println("\t[-beam <width>] [-nodes <n>] [-budget <ms>] [-seeds <first>..<last>] [-metrics]");
             return;
         }
         Program program;
@@ -65,7 +92,15 @@ public class Program implements Runnable {
         if (!initialPosition.inPlayArea())
             throw new IllegalArgumentException("Initial position has to be inside the play area.");
         seed = Long.parseLong(args.get(5));
-        droneType = args.get(6);
+        drones = new ArrayList<>();
+        for (String name : args.get(6).split(",")) {
+            DroneFactory factory = DroneFactory.forName(name);
+            if (factory == null)
+                throw new IllegalArgumentException("Unknown drone type " + name + ", expected one of "
+                        + String.join(", ", DroneFactory.names()) + ".");
+            drones.add(factory);
+        }
+        settings = new DroneSettings(initialPosition, INIT_COINS, INIT_POWER, MAX_MOVES);
         int index;
         if ((index = args.indexOf("-to")) >= 0)
             lastDate = LocalDate.parse(args.get(index + 1), DATE_FORMAT);
@@ -81,114 +116,333 @@ public class Program implements Runnable {
             logDirectory = Paths.get(".");
         writeLog = !args.contains("-nolog");
         writeStats = args.contains("-stats");
+        metrics = args.contains("-metrics") ? new Metrics() : null;
+        useCache = args.contains("-cache");
+        if ((index = args.indexOf("-threads")) >= 0) {
+            threads = Integer.parseInt(args.get(index + 1));
+            if (threads < 1)
+                throw new IllegalArgumentException("Number of threads has to be positive.");
+        } else {
+            threads = 1;
+        }
+        if ((index = args.indexOf("-beam")) >= 0) {
+            int beamWidth = Integer.parseInt(args.get(index + 1));
+            if (beamWidth < 1)
+                throw new IllegalArgumentException("Beam width has to be positive.");
+            settings.setBeamWidth(beamWidth);
+        }
+        if ((index = args.indexOf("-nodes")) >= 0) {
+            int maxNodes = Integer.parseInt(args.get(index + 1));
+            if (maxNodes < 2)
+                throw new IllegalArgumentException("Node budget has to be at least two.");
+            settings.setMaxNodes(maxNodes);
+        }
+        if ((index = args.indexOf("-budget")) >= 0) {
+            long budget = Long.parseLong(args.get(index + 1));
+            if (budget < 0)
+                throw new IllegalArgumentException("Planning budget cannot be negative.");
+            settings.setPlanningBudget(budget, TimeUnit.MILLISECONDS);
+        }
+        if ((index = args.indexOf("-seeds")) >= 0) {
+            String[] range = args.get(index + 1).split("\\.\\.", -1);
+            if (range.length != 2)
+                throw new IllegalArgumentException("Seeds have to be given as <first>..<last>.");
+            firstSeed = Long.parseLong(range[0]);
+            lastSeed = Long.parseLong(range[1]);
+            if (firstSeed > lastSeed)
+                throw new IllegalArgumentException("First seed cannot be greater than the last seed.");
+            if (lastSeed - firstSeed < 0 || lastSeed - firstSeed >= Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Too many seeds given.");
+            sweepSeeds = true;
+        } else {
+            firstSeed = lastSeed = seed;
+            sweepSeeds = false;
+        }
     }
 
     @Override
     public void run() {
-        Map<LocalDate, double[]> stats = new HashMap<>();
-        for (LocalDate date = firstDate; date.compareTo(lastDate) <= 0; date = date.plusDays(1)) {
-            System.out.printf("Drone: %s, Date: %s, Position: %s", droneType, date, initialPosition);
-            System.out.println();
-            Instant start = Instant.now();
-            double score = run(date);
-            Duration duration = Duration.between(start, Instant.now());
-            double seconds = duration.getSeconds() + duration.getNano() * 1e-9;
-            stats.put(date, new double[] { score, seconds });
-            System.out.printf("Finished after %.3fs with score: %.1f%%", seconds, score * 100.0);
-            System.out.println();
+        // sorted by date so that the statistics are written in a deterministic order
+        Map<DroneFactory, SortedMap<LocalDate, double[]>> stats = new LinkedHashMap<>();
+        for (DroneFactory drone : drones)
+            stats.put(drone, new ConcurrentSkipListMap<>());
+        // the threads improving the paths of drones with a planning budget between moves
+        ExecutorService background = null;
+        if (drones.stream().anyMatch(this::hasPlanningBudget)) {
+            background = Executors.newCachedThreadPool(runnable -> {
+                // unfinished improvements should not keep the program running
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+            settings.setBackground(background);
         }
+        ObjectName metricsName = null;
+        if (metrics != null) {
+            try {
+                // only registered while running, so that long runs can be watched
+                metricsName = metrics.register("total");
+            } catch (JMException e) {
+                System.err.println("Could not register metrics.");
+            }
+        }
+        try {
+            if (!simulateAll(stats))
+                return;
+        } finally {
+            if (background != null)
+                background.shutdownNow();
+            if (metricsName != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+                } catch (JMException e) {
+                    System.err.println("Could not unregister metrics.");
+                }
+            }
+        }
+        if (metrics != null)
+            writeMetrics(metrics, "total");
         if (writeStats) {
-            try (PrintWriter writer = new PrintWriter(
-                    Paths.get(logDirectory.toString(), "performance-" + droneType + ".csv").toFile())) {
-                for (Map.Entry<LocalDate, double[]> entry : stats.entrySet()) {
-                    double[] values = entry.getValue();
-                    writer.printf("%s,%f,%f", entry.getKey(), values[0], values[1]);
-                    writer.println();
+            for (Map.Entry<DroneFactory, SortedMap<LocalDate, double[]>> drone : stats.entrySet()) {
+                try (PrintWriter writer = new PrintWriter(Paths.get(logDirectory.toString(),
+                        "performance-" + drone.getKey().getName() + ".csv").toFile())) {
+                    for (Map.Entry<LocalDate, double[]> entry : drone.getValue().entrySet()) {
+                        double[] values = entry.getValue();
+                        writer.printf("%s,%f,%f", entry.getKey(), values[0], values[1]);
+                        writer.println();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not save statistics.");
                 }
-            } catch (IOException e) {
-                System.err.println("Could not save statistics.");
             }
         }
     }
 
+    private boolean hasPlanningBudget(DroneFactory drone) {
+        long budget = drone.getPlanningBudget(settings, TimeUnit.NANOSECONDS);
+        return budget >= 0 && budget != Long.MAX_VALUE;
+    }
+
     /**
-     * Runs a drone simulation on the specified map of the day.
+     * Runs the drone simulations of all days, adding the results to {@code stats}.
      *
-     * @return the drone score
+     * @return {@code false} if interrupted
+     */
+    private boolean simulateAll(Map<DroneFactory, SortedMap<LocalDate, double[]>> stats) {
+        // the threads simulate the seeds of each day when sweeping seeds
+        if (threads == 1 || sweepSeeds) {
+            for (LocalDate date = firstDate; date.compareTo(lastDate) <= 0; date = date.plusDays(1))
+                run(date, stats);
+            return true;
+        }
+        // each day is independent so simulate them concurrently
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (LocalDate date = firstDate; date.compareTo(lastDate) <= 0; date = date.plusDays(1)) {
+            LocalDate day = date;
+            tasks.add(() -> {
+                run(day, stats);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return true;
+    }
+
+    /**
+     * Loads the map of the day and runs the simulations of each type of drone
+     * on it, adding the results to {@code stats}.
      */
-    private double run(LocalDate date) {
-        GeoJson geoJson;
+    private void run(LocalDate date, Map<DroneFactory, SortedMap<LocalDate, double[]>> stats) {
+        GameMap map;
+        GeoJson geoJson = null;
+        long start = System.nanoTime();
         try {
-            if (localDirectory == null) {
-                String url = String.format(
-                        "http://homepages.inf.ed.ac.uk/stg/powergrab/%04d/%02d/%02d/powergrabmap.geojson",
-                        date.getYear(), date.getMonthValue(), date.getDayOfMonth());
-                geoJson = new GeoJson(new URL(url));
+            URL url = localDirectory == null ? mapUrl(date) : null;
+            Path file = localDirectory == null ? null : mapFile(date);
+            if (writeLog && !sweepSeeds) {
+                // the whole document is only needed for writing the flight paths
+                geoJson = url != null ? new GeoJson(url) : new GeoJson(file);
+                map = geoJson.getMap();
+            } else if (url != null) {
+                map = GeoJsonReader.readMap(url);
             } else {
-                Path file = Paths.get(localDirectory.toString(),
-                        String.format("%04d", date.getYear()),
-                        String.format("%02d", date.getMonthValue()),
-                        String.format("%02d", date.getDayOfMonth()),
-                        "powergrabmap.geojson");
-                geoJson = new GeoJson(file);
+                map = useCache ? MapCache.load(file) : GeoJsonReader.readMap(file);
             }
         } catch (IOException e) {
-            System.err.println("Failed loading map!");
+            System.err.printf("Failed loading map of %s!%n", date);
+            for (SortedMap<LocalDate, double[]> droneStats : stats.values())
+                droneStats.put(date, new double[] { -1.0, 0.0 });
+            return;
+        }
+        long mapLoadTime = System.nanoTime() - start;
+        if (metrics != null)
+            metrics.record(MAP_LOAD_NANOS, mapLoadTime);
+        // the map is loaded once and only copies of it are changed by the drones
+        for (Map.Entry<DroneFactory, SortedMap<LocalDate, double[]>> drone : stats.entrySet())
+            drone.getValue().put(date, runTimed(drone.getKey(), date, map, geoJson, mapLoadTime));
+    }
+
+    /**
+     * Runs a simulation of the {@code drone} on the map of the day and
+     * measures the time taken, including preparing the map for the drone.
+     * The metrics of the run are written to their own files, and the run
+     * is emitted as a {@link RunEvent} to Flight Recorder.
+     *
+     * @param mapLoadTime the time taken to load the map in nanoseconds
+     * @return the drone score and the time taken in seconds
+     */
+    private double[] runTimed(DroneFactory drone, LocalDate date, GameMap map, GeoJson geoJson,
+                              long mapLoadTime) {
+        RunEvent event = FlightEvents.AVAILABLE ? new RunEvent() : null;
+        if (event != null)
+            event.begin();
+        DroneSettings runSettings = settings;
+        if (metrics != null) {
+            // the runs of different days may be simulated concurrently
+            runSettings = new DroneSettings(settings);
+            runSettings.setMetrics(new Metrics());
+        }
+        Instant start = Instant.now();
+        double score = sweepSeeds ? runSeeds(drone, runSettings, date, map)
+                : run(drone, runSettings, map, geoJson, writeLog ? date.format(DATE_FORMAT) : null);
+        if (event != null && event.shouldCommit()) {
+            event.date = date.format(DATE_FORMAT);
+            event.drone = drone.getName();
+            event.score = score;
+            event.mapLoadTime = mapLoadTime;
+            event.commit();
+        }
+        Duration duration = Duration.between(start, Instant.now());
+        double seconds = duration.getSeconds() + duration.getNano() * 1e-9;
+        // a single line for each run, as the runs of different days may be simulated concurrently
+        System.out.printf("Drone: %s, Date: %s, Position: %s, finished after %.3fs with %s: %.1f%%%n",
+                drone.getName(), date, initialPosition, seconds, sweepSeeds ? "median score" : "score", score * 100.0);
+        if (metrics != null) {
+            writeMetrics(runSettings.getMetrics(), drone.getName() + "-" + date.format(DATE_FORMAT));
+            metrics.add(runSettings.getMetrics());
+        }
+        return new double[] { score, seconds };
+    }
+
+    /**
+     * Writes the {@code runMetrics} to the CSV and JSON files named
+     * {@code metrics-<suffix>} in the log directory.
+     */
+    private void writeMetrics(Metrics runMetrics, String suffix) {
+        Path csvFile = Paths.get(logDirectory.toString(), "metrics-" + suffix + ".csv");
+        Path jsonFile = Paths.get(logDirectory.toString(), "metrics-" + suffix + ".json");
+        try (Writer csv = Files.newBufferedWriter(csvFile); Writer json = Files.newBufferedWriter(jsonFile)) {
+            runMetrics.writeCsv(csv);
+            runMetrics.writeJson(json);
+        } catch (IOException e) {
+            System.err.println("Could not save metrics.");
+        }
+    }
+
+    /**
+     * Runs simulations of the {@code drone} with the given {@code settings} and each
+     * seed of the range on the map, writing the score of each seed to the log file.
+     *
+     * @return the median score
+     */
+    private double runSeeds(DroneFactory drone, DroneSettings settings, LocalDate date, GameMap map) {
+        SeedSweep sweep = new SeedSweep(map, drone.prepare(map, settings), MAX_MOVES);
+        sweep.setMetrics(settings.getMetrics());
+        // the drones are created on the threads of the sweep
+        sweep.setThreads(drone.sharesMapState() ? threads : 1);
+        double[] scores;
+        try {
+            if (writeLog) {
+                // the scores are written as they are found rather than kept until the end
+                try (PrintWriter writer = new PrintWriter(Paths.get(logDirectory.toString(),
+                        "seeds-" + drone.getName() + "-" + date.format(DATE_FORMAT) + ".csv").toFile())) {
+                    scores = sweep.run(firstSeed, lastSeed, (seed, score) -> writer.printf("%d,%f%n", seed, score));
+                }
+            } else {
+                scores = sweep.run(firstSeed, lastSeed, null);
+            }
+        } catch (IOException e) {
+            System.err.println(e.toString());
+            return -1.0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return -1.0;
         }
-        return run(geoJson, writeLog ? date.format(DATE_FORMAT) : null);
+        System.out.printf("Seeds %d..%d: p50 %.1f%%, p95 %.1f%%, max %.1f%%%n", firstSeed, lastSeed,
+                SeedSweep.percentile(scores, 50.0) * 100.0, SeedSweep.percentile(scores, 95.0) * 100.0,
+                SeedSweep.percentile(scores, 100.0) * 100.0);
+        return SeedSweep.percentile(scores, 50.0);
+    }
+
+    private static URL mapUrl(LocalDate date) throws MalformedURLException {
+        return new URL(String.format(
+                "http://homepages.inf.ed.ac.uk/stg/powergrab/%04d/%02d/%02d/powergrabmap.geojson",
+                date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+    }
+
+    private Path mapFile(LocalDate date) {
+        return Paths.get(localDirectory.toString(),
+                String.format("%04d", date.getYear()),
+                String.format("%02d", date.getMonthValue()),
+                String.format("%02d", date.getDayOfMonth()),
+                "powergrabmap.geojson");
     }
 
     /**
-     * Runs a drone simulation on the specified map in GeoJSON format.
+     * Runs a simulation of the {@code drone} with the given {@code settings}
+     * on a copy of the map. If {@code fileSuffix}
+     * is not {@code null}, the moves are written to the log files along with
+     * the map in GeoJSON format.
      *
      * @return the drone score
      */
-    private double run(GeoJson geoJson, String fileSuffix) {
-        GameMap map = geoJson.getMap();
+    private double run(DroneFactory drone, DroneSettings settings, GameMap map, GeoJson geoJson,
+                       String fileSuffix) {
         double totalCoins = 0.0;
         for (Station station : map.stations) {
             double coins = station.getCoins();
             if (coins > 0.0) totalCoins += coins;
         }
-        Drone drone;
-        switch (droneType) {
-            case "stateless":
-                drone = new StatelessDrone(initialPosition, map, INIT_COINS, INIT_POWER);
-                break;
-            case "stateful":
-                drone = new StatefulDrone(initialPosition, map, INIT_COINS, INIT_POWER, MAX_MOVES);
-                break;
-            default:
-                System.err.println("Unknown drone type!");
-                return -1.0;
-        }
-        drone.random.setSeed(seed);
-        Simulation simulation = new Simulation(drone, MAX_MOVES);
-        List<Simulation.Move> moves = simulation.runSimulation();
-        if (fileSuffix != null) {
-            geoJson = new GeoJson(geoJson);
-            geoJson.addMoves(moves);
-            try (PrintWriter logWriter = new PrintWriter(
-                    Paths.get(logDirectory.toString(),
-                            droneType + "-" + fileSuffix + ".txt").toFile());
-                    PrintWriter mapWriter = new PrintWriter(
-                            Paths.get(logDirectory.toString(),
-                                    droneType + "-" + fileSuffix + ".geojson").toFile())) {
-                mapWriter.print(geoJson);
-                boolean firstLine = true;
-                for (Simulation.Move move : moves) {
-                    if (firstLine)
-                        firstLine = false;
-                    else
-                        logWriter.println();
-                    logWriter.print(move);
-                }
+        Drone simulated = drone.prepare(map, settings).apply(new GameMap(map));
+        simulated.random.setSeed(seed);
+        Simulation simulation = new Simulation(simulated, MAX_MOVES);
+        simulation.setMetrics(settings.getMetrics());
+        if (fileSuffix == null) {
+            simulation.run();
+        } else {
+            // the moves are written as they are made rather than kept until the end
+            String name = drone.getName() + "-" + fileSuffix;
+            Path logFile = Paths.get(logDirectory.toString(), name + ".txt");
+            Path mapFile = Paths.get(logDirectory.toString(), name + ".geojson");
+            try (MoveLogWriter logWriter = new MoveLogWriter(Files.newBufferedWriter(logFile));
+                    FlightPathWriter mapWriter = new FlightPathWriter(geoJson, Files.newBufferedWriter(mapFile))) {
+                Metrics runMetrics = settings.getMetrics();
+                simulation.run((before, direction, after, coins, power) -> {
+                    long start = runMetrics == null ? 0L : System.nanoTime();
+                    logWriter.move(before, direction, after, coins, power);
+                    mapWriter.move(before, direction, after, coins, power);
+                    if (runMetrics != null)
+                        runMetrics.add(OUTPUT_NANOS, System.nanoTime() - start);
+                });
             } catch (IOException e) {
                 System.err.println(e.toString());
                 return -1.0;
+            } catch (UncheckedIOException e) {
+                System.err.println(e.getCause().toString());
+                return -1.0;
             }
         }
-        return drone.getCoins() / totalCoins;
+        return simulated.getCoins() / totalCoins;
     }
 }
@@ -0,0 +1,179 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Runs simulations of a drone on the same map for a range of seeds,
+ * for studying the distribution of the scores of randomised drones.
+ *
+ * <p>The drone of seed {@code s} is seeded with the first number of a
+ * {@link SplittableRandom} created with {@code s}, so the random streams of
+ * consecutive seeds are independent, and the score of each seed does not depend
+ * on the range or the number of threads. The moves are not recorded, only the
+ * score of each seed is kept. The copies of the map share its {@link MapLayout},
+ * so each simulation only copies the resources of the stations.
+ */
+public class SeedSweep {
+    /**
+     * Receives the score of each seed, in the order of the seeds.
+     */
+    public interface ScoreListener {
+        void score(long seed, double score);
+    }
+
+    /**
+     * The number of seeds simulated before their scores are passed to the listener
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    private final GameMap map;
+    private final Function<GameMap, ? extends Drone> drones;
+    private final int maxMoves;
+    private final double totalCoins;
+    private int threads = 1;
+    private Metrics metrics = null;
+
+    /**
+     * Creates a {@code SeedSweep} of the drones created by {@code drones}
+     * on copies of {@code map}, which is not changed.
+     *
+     * @param maxMoves the maximum number of moves of each simulation
+     */
+    public SeedSweep(GameMap map, Function<GameMap, ? extends Drone> drones, int maxMoves) {
+        if (map == null || drones == null) throw new NullPointerException();
+        if (maxMoves < 0) throw new IllegalArgumentException();
+        this.map = map;
+        this.drones = drones;
+        this.maxMoves = maxMoves;
+        double total = 0.0;
+        for (Station station : map.stations) {
+            double coins = station.getCoins();
+            if (coins > 0.0) total += coins;
+        }
+        this.totalCoins = total;
+    }
+
+    public int getThreads() { return threads; }
+
+    /**
+     * Sets the number of threads simulating seeds concurrently, 1 by default.
+     *
+     * @throws IllegalArgumentException if {@code threads} is less than one
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException();
+        this.threads = threads;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the moves of the simulations are recorded in,
+     * or {@code null} to not record them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the seed of the drone's {@link java.util.Random} for {@code seed}.
+     *
+     * @return the seed of the drone
+     */
+    public static long droneSeed(long seed) {
+        return new SplittableRandom(seed).nextLong();
+    }
+
+    /**
+     * Simulates the seeds from {@code firstSeed} to {@code lastSeed} inclusive,
+     * passing the score of each seed to the {@code listener} as soon as the seeds
+     * before it have been passed.
+     *
+     * @param listener receives the scores, or {@code null}
+     * @return the scores in the order of the seeds
+     * @throws IllegalArgumentException if the range is empty or too large
+     */
+    public double[] run(long firstSeed, long lastSeed, ScoreListener listener) throws InterruptedException {
+        long count = lastSeed - firstSeed + 1;
+        if (lastSeed < firstSeed || count <= 0 || count > Integer.MAX_VALUE)
+            throw new IllegalArgumentException();
+        double[] scores = new double[(int) count];
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (int from = 0; from < scores.length; from += CHUNK_SIZE) {
+                int to = (int) Math.min((long) from + CHUNK_SIZE, scores.length);
+                if (executor == null)
+                    simulate(firstSeed, scores, from, to, 1);
+                else
+                    simulateConcurrently(executor, firstSeed, scores, from, to);
+                if (listener != null)
+                    for (int i = from; i < to; i++)
+                        listener.score(firstSeed + i, scores[i]);
+            }
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+        return scores;
+    }
+
+    private void simulateConcurrently(ExecutorService executor, long firstSeed, double[] scores,
+                                      int from, int to) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int start = from + t;
+            tasks.add(() -> {
+                // interleaved so that the threads get seeds of similar cost
+                simulate(firstSeed, scores, start, to, threads);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks))
+                future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void simulate(long firstSeed, double[] scores, int from, int to, int step) {
+        for (int i = from; i < to; i += step) {
+            Drone drone = drones.apply(new GameMap(map));
+            drone.random.setSeed(droneSeed(firstSeed + i));
+            Simulation simulation = new Simulation(drone, maxMoves);
+            simulation.setMetrics(metrics);
+            simulation.run();
+            scores[i] = drone.getCoins() / totalCoins;
+        }
+    }
+
+    /**
+     * Returns the {@code p}-th percentile of the {@code scores} by the nearest-rank
+     * method, for example 50 for the median and 100 for the maximum.
+     *
+     * @throws IllegalArgumentException if {@code scores} is empty or {@code p}
+     *         is not greater than 0 and at most 100
+     */
+    public static double percentile(double[] scores, double p) {
+        if (scores.length == 0 || !(p > 0.0 && p <= 100.0)) throw new IllegalArgumentException();
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -8,6 +8,9 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab;
 
+import uk.ac.ed.inf.powergrab.metrics.Histogram;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,12 @@ import java.util.List;
  * Runs a simulation of a given drone.
  */
 public class Simulation {
+    /**
+     * The names of the counter of moves and the histogram of the time
+     * taken by the drone to choose and make each move
+     */
+    public static final String MOVES = "simulation.moves", MOVE_NANOS = "simulation.moveNanos";
+
     /**
      * Stores details about a drone's move.
      */
@@ -37,8 +46,26 @@ public class Simulation {
         }
     }
 
+    /**
+     * Receives the moves of a drone as they are made, so that they
+     * can be processed without keeping the whole flight in memory.
+     */
+    public interface MoveListener {
+        /**
+         * Called after the drone has made a move.
+         *
+         * @param before the position of the drone before the move
+         * @param direction the direction of the move
+         * @param after the position of the drone after the move
+         * @param coins the coins of the drone after the move
+         * @param power the power of the drone after the move
+         */
+        void move(Position before, Direction direction, Position after, double coins, double power);
+    }
+
     private final Drone drone;
     private final int maxMoves;
+    private Metrics metrics = null;
 
     /**
      * Creates a simulation.
@@ -52,6 +79,16 @@ public class Simulation {
         this.maxMoves = maxMoves;
     }
 
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the moves are recorded in, or {@code null}
+     * to not record them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Runs a simulation and returns a list of moves the drone made.
      *
@@ -59,15 +96,43 @@ public class Simulation {
      */
     public List<Move> runSimulation() {
         List<Move> result = new ArrayList<>(maxMoves);
-        for (int moves = 0; moves < maxMoves && drone.getPower() >= GameRules.powerConsumedPerMove; moves++) {
-            Position before, after;
-            before = drone.getPosition();
+        run((before, direction, after, coins, power) ->
+                result.add(new Move(before, after, direction, coins, power)));
+        return result;
+    }
+
+    /**
+     * Runs a simulation without recording the moves, for when only
+     * the final state of the drone is needed.
+     *
+     * @return the number of moves the drone made
+     */
+    public int run() {
+        return run(null);
+    }
+
+    /**
+     * Runs a simulation, passing each move to the {@code listener}
+     * as soon as the drone has made it.
+     *
+     * @param listener receives the moves, or {@code null}
+     * @return the number of moves the drone made
+     */
+    public int run(MoveListener listener) {
+        Histogram moveTimes = metrics == null ? null : metrics.histogram(MOVE_NANOS);
+        int moves = 0;
+        for (; moves < maxMoves && drone.getPower() >= GameRules.powerConsumedPerMove; moves++) {
+            Position before = listener == null ? null : drone.getPosition();
+            long start = moveTimes == null ? 0L : System.nanoTime();
             Direction direction = drone.getDirection();
             drone.move(direction);
-            after = drone.getPosition();
-            Move move = new Move(before, after, direction, drone.getCoins(), drone.getPower());
-            result.add(move);
+            if (moveTimes != null)
+                moveTimes.record(System.nanoTime() - start);
+            if (listener != null)
+                listener.move(before, direction, drone.getPosition(), drone.getCoins(), drone.getPower());
         }
-        return result;
+        if (metrics != null)
+            metrics.add(MOVES, moves);
+        return moves;
     }
 }
@@ -8,9 +8,18 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab;
 
+import uk.ac.ed.inf.powergrab.jfr.FlightEvents;
+import uk.ac.ed.inf.powergrab.jfr.PlanEvent;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
 import uk.ac.ed.inf.powergrab.search.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A {@link Drone} implementation which decides its path by finding:
@@ -20,8 +29,46 @@ import java.util.*;
  * </ol>
  */
 public class StatefulDrone extends Drone {
+    /**
+     * The names of the counters of plans and of stations looked up by the search
+     * nodes, and of the histogram of the time taken by each plan
+     */
+    public static final String PLANS = "drone.plans", CLOSE_STATION_CALLS = "drone.closeStationCalls",
+            PLAN_NANOS = "drone.planNanos";
+
     private final int maxMoves;
-    private final Queue<Direction> moves;
+    /**
+     * The nodes of the planned path after each of the precomputed moves
+     */
+    private final Deque<PathNode> moves;
+    private int beamWidth = 0, maxNodes = Integer.MAX_VALUE;
+    private long maxExpansions = Long.MAX_VALUE, timeLimit = Long.MAX_VALUE;
+    private Executor background = null;
+    private Metrics metrics = null;
+    /**
+     * The counter of stations looked up, kept as it is updated for every node
+     */
+    private LongAdder closeStationCalls = null;
+    /**
+     * The search improving the path after the next move in the background, or {@code null}
+     */
+    private HeuristicSearchSolver<PathNode> improver = null;
+    private CompletableFuture<PathNode> improvement = null;
+    private PathNode improvementStart = null;
+    /**
+     * The order of the stations found by the last plan, or {@code null}
+     */
+    private List<Position> tour = null;
+    /**
+     * The order of the stations to be used by the next plan in place of
+     * planning it, or {@code null}
+     */
+    private List<Position> plannedTour = null;
+    /**
+     * The moves returning to the last planned path and following it,
+     * kept when the drone deviates from the path, or {@code null}
+     */
+    private List<Direction> abandoned = null;
 
     /**
      * Creates a {@code StatefulDrone} instance.
@@ -32,15 +79,113 @@ public class StatefulDrone extends Drone {
         this.moves = new ArrayDeque<>(maxMoves);
     }
 
+    public int getBeamWidth() { return beamWidth; }
+
+    /**
+     * Sets the width of the beam search used for finding the path, or {@code 0}
+     * for a best-first search, which is the default.
+     *
+     * @throws IllegalArgumentException if {@code beamWidth} is negative
+     */
+    public void setBeamWidth(int beamWidth) {
+        if (beamWidth < 0) throw new IllegalArgumentException();
+        this.beamWidth = beamWidth;
+    }
+
+    public int getMaxNodes() { return maxNodes; }
+
+    /**
+     * Sets the maximum number of nodes held by the best-first search for the path,
+     * or {@link Integer#MAX_VALUE} for the default of frontier and explored sets of
+     * 4096 nodes each. Within the budget, the search forgets and regenerates nodes
+     * in the style of SMA* rather than dropping them. Paths are planned up to
+     * {@code maxNodes - 1} moves ahead, so with a budget smaller than the number of
+     * moves the drone follows partial paths and plans again at their end.
+     *
+     * @see HeuristicSearchSolver#setMaxNodes
+     * @throws IllegalArgumentException if {@code maxNodes} is less than two
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 2) throw new IllegalArgumentException();
+        this.maxNodes = maxNodes;
+    }
+
+    public long getMaxExpansions() { return maxExpansions; }
+
+    /**
+     * Sets the maximum number of nodes expanded while finding the path,
+     * unbounded by default. When the budget is exhausted, the drone follows
+     * the best partial path found and plans again at its end.
+     *
+     * @throws IllegalArgumentException if {@code maxExpansions} is less than one
+     */
+    public void setMaxExpansions(long maxExpansions) {
+        if (maxExpansions < 1) throw new IllegalArgumentException();
+        this.maxExpansions = maxExpansions;
+    }
+
+    public long getTimeLimit(TimeUnit unit) {
+        return timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(timeLimit, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time {@link #getDirection} may spend planning, unbounded
+     * by default. When the time is up, the drone follows the best partial path
+     * found and plans again at its end.
+     *
+     * @throws IllegalArgumentException if {@code timeLimit} is negative
+     */
+    public void setTimeLimit(long timeLimit, TimeUnit unit) {
+        if (timeLimit < 0) throw new IllegalArgumentException();
+        this.timeLimit = unit.toNanos(timeLimit);
+    }
+
+    public Executor getBackground() { return background; }
+
+    /**
+     * Sets the executor used for improving the planned path in the background,
+     * or {@code null} to only plan in {@link #getDirection}, which is the default.
+     *
+     * <p>After choosing a move, the drone keeps searching for a better path
+     * from the position after the move without any budget, until the next
+     * move is requested. The path found replaces the planned one if it is
+     * better, so the drone makes use of the time between its moves.
+     */
+    public void setBackground(Executor background) {
+        this.background = background;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the plans of the drone and the searches for its path are
+     * recorded in, or {@code null} to not record them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        this.closeStationCalls = metrics == null ? null : metrics.counter(CLOSE_STATION_CALLS);
+    }
+
     /**
      * {@inheritDoc}
      *
-     * <p>Updates the queue of precomputed moves.
+     * <p>Updates the queue of precomputed moves. If the drone deviates from
+     * the precomputed moves, they are kept for warm-starting the next search.
      */
     @Override
     public void move(Direction direction) {
-        if (!moves.isEmpty() && !moves.poll().equals(direction))
+        if (!moves.isEmpty() && moves.peek().direction != direction) {
+            abandoned = new ArrayList<>(moves.size() + 1);
+            abandoned.add(direction.opposite());
+            for (PathNode node : moves)
+                abandoned.add(node.direction);
             moves.clear();
+        } else if (!moves.isEmpty()) {
+            moves.poll();
+        } else if (abandoned != null) {
+            // deviating again before the next plan moves the path further away
+            abandoned.add(0, direction.opposite());
+        }
         super.move(direction);
     }
 
@@ -48,29 +193,247 @@ public class StatefulDrone extends Drone {
      * Returns the first move from the queue of precomputed moves,
      * otherwise populates the queue.
      *
+     * <p>After the first plan, the order of the stations is repaired rather than
+     * found from scratch, and the search for the path is warm-started from the
+     * moves abandoned when the drone deviated from the plan. Each plan emits
+     * a {@link PlanEvent} to Flight Recorder.
+     *
      * @return the direction this drone chose to move next
      */
     public Direction getDirection() {
-        if (!moves.isEmpty())
-            return moves.peek();
-        List<Position> strategy = new ArrayList<>(map.stations.size());
-        for (Station station : map.stations) {
-            if (station.getCoins() > 0.0)
-                strategy.add(station.position);
+        long start = System.nanoTime();
+        finishImprovement(start);
+        if (moves.isEmpty()) {
+            List<Position> strategy = positiveStations();
+            if (!strategy.isEmpty()) {
+                PlanEvent event = FlightEvents.AVAILABLE ? new PlanEvent() : null;
+                if (event != null)
+                    event.begin();
+                int stations = strategy.size(), warmStartNodes = 0;
+                boolean sharedTour = plannedTour != null;
+                strategy = plan(strategy);
+                PathNode initPathNode = new PathNode(0, getPosition(), getCoins(), getPower(), new Plan(strategy));
+                PathNode solution;
+                if (beamWidth > 0) {
+                    BeamSearchSolver<PathNode> pathFinder = new BeamSearchSolver<>(beamWidth);
+                    pathFinder.setMaxExploredSize(4096);
+                    pathFinder.setMetrics(metrics);
+                    solution = pathFinder.solve(initPathNode);
+                } else {
+                    HeuristicSearchSolver<PathNode> pathFinder = pathFinder();
+                    pathFinder.setMaxExpansions(maxExpansions);
+                    if (timeLimit != Long.MAX_VALUE) {
+                        // the time taken to order the stations counts towards the limit
+                        long remaining = timeLimit - (System.nanoTime() - start);
+                        pathFinder.setTimeLimit(Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+                    }
+                    List<PathNode> warmStart = replay(initPathNode);
+                    warmStartNodes = warmStart.size();
+                    solution = pathFinder.solve(initPathNode, warmStart);
+                }
+                if (solution != null)
+                    Collections.addAll(moves, solution.getPath(initPathNode));
+                if (metrics != null) {
+                    metrics.add(PLANS, 1);
+                    metrics.record(PLAN_NANOS, System.nanoTime() - start);
+                }
+                if (event != null && event.shouldCommit()) {
+                    event.power = getPower();
+                    event.stations = stations;
+                    event.sharedTour = sharedTour;
+                    event.warmStartNodes = warmStartNodes;
+                    event.planLength = moves.size();
+                    event.complete = solution != null && solution.isGoal();
+                    event.commit();
+                }
+            }
+            abandoned = null;
+            plannedTour = null;
+        }
+        if (moves.isEmpty())
+            return awayFromNegativity();
+        startImprovement();
+        return moves.peek().direction;
+    }
+
+    /**
+     * Finds the order to visit the stations with coins in from the current state
+     * of the drone, which is the first step of planning in {@link #getDirection}.
+     * The order is kept for the next call to {@link #getDirection}, which then
+     * only searches for the path.
+     *
+     * @return the order of the stations, which cannot be modified
+     */
+    public List<Position> planTour() {
+        List<Position> stations = positiveStations();
+        plannedTour = stations.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(plan(stations));
+        return plannedTour;
+    }
+
+    /**
+     * Sets the order to visit the stations in, as returned by {@link #planTour} for
+     * a drone in the same state on a copy of the same map, to be used by the next
+     * call to {@link #getDirection} in place of planning it. This allows drones on
+     * copies of a map to share their first plan.
+     *
+     * @throws NullPointerException if {@code tour} is {@code null}
+     */
+    public void setTour(List<Position> tour) {
+        if (tour == null) throw new NullPointerException();
+        plannedTour = tour;
+    }
+
+    /**
+     * Returns the positions of the stations with coins.
+     *
+     * @return list of positions
+     */
+    private List<Position> positiveStations() {
+        List<Position> result = new ArrayList<>(map.layout.size());
+        for (int station = 0; station < map.layout.size(); station++) {
+            if (map.getCoins(station) > 0.0)
+                result.add(map.layout.getPosition(station));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a best-first search for the path with the node budget of the drone.
+     */
+    private HeuristicSearchSolver<PathNode> pathFinder() {
+        HeuristicSearchSolver<PathNode> pathFinder = new HeuristicSearchSolver<>(4096);
+        if (maxNodes != Integer.MAX_VALUE)
+            pathFinder.setMaxNodes(maxNodes);
+        pathFinder.setMetrics(metrics);
+        return pathFinder;
+    }
+
+    /**
+     * Starts searching in the background for a better path from the node
+     * after the next planned move, if a background executor is set.
+     */
+    private void startImprovement() {
+        if (background == null || beamWidth > 0)
+            return;
+        PathNode from = moves.peek();
+        if (from.isGoal())
+            return;
+        HeuristicSearchSolver<PathNode> pathFinder = pathFinder();
+        // the nodes only read the stations which the drone does not change before the
+        // next move, the resources of the others are stored in the nodes
+        improvement = CompletableFuture.supplyAsync(() -> pathFinder.solve(from), background);
+        improver = pathFinder;
+        improvementStart = from;
+    }
+
+    /**
+     * Stops the search running in the background and replaces the rest of the
+     * planned path with the path found if it is better. The path is only replaced
+     * if the drone has made the move the search started after.
+     *
+     * @param start the time {@link #getDirection} was called at
+     */
+    private void finishImprovement(long start) {
+        if (improvement == null)
+            return;
+        improver.stop();
+        PathNode improved;
+        try {
+            if (timeLimit == Long.MAX_VALUE) {
+                improved = improvement.get();
+            } else {
+                // waiting for the search to stop counts towards the time limit,
+                // it may not be running if there are fewer processors than searches
+                long remaining = timeLimit - (System.nanoTime() - start);
+                improved = improvement.get(Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            improved = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            improved = null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        PathNode from = improvementStart;
+        improvement = null;
+        improver = null;
+        improvementStart = null;
+        if (improved == null || moves.isEmpty() || moves.peek().previous != from)
+            return;
+        if (improved.compareTo(moves.peekLast()) < 0) {
+            moves.clear();
+            Collections.addAll(moves, improved.getPath(from));
+        }
+    }
+
+    /**
+     * Returns the order to visit the {@code stations} in. The order found by the
+     * previous plan is repaired around the stations which have been visited since
+     * or were not planned, which is much faster than finding a new order.
+     *
+     * @return the order of the stations
+     */
+    private List<Position> plan(List<Position> stations) {
+        if (plannedTour != null) {
+            tour = plannedTour;
+            plannedTour = null;
+            return tour;
+        }
+        LocalSearchTspSolver<Position> strategyFinder = new LocalSearchTspSolver<>();
+        strategyFinder.setInitialNode(getPosition());
+        strategyFinder.setMetrics(metrics);
+        if (tour == null) {
+            tour = strategyFinder.solve(stations);
+            return tour;
         }
-        if (!strategy.isEmpty()) {
-            TspSolver<Position> strategyFinder = new IterativeTspSolver<>(strategy.size());
-            strategyFinder.setInitialNode(getPosition());
-            strategy = strategyFinder.solve(strategy);
-            Solver<PathNode, PathNode> pathFinder = new HeuristicSearchSolver<>(4096);
-            PathNode initPathNode = new PathNode(0, getPosition(), getCoins(), getPower(), map, strategy);
-            PathNode solution = pathFinder.solve(initPathNode);
-            if (solution != null)
-                moves.addAll(solution.getDirections());
+        Set<Position> unplanned = new HashSet<>(stations);
+        List<Position> kept = new ArrayList<>(stations.size());
+        Set<Position> changed = new HashSet<>();
+        boolean removed = false;
+        for (Position position : tour) {
+            if (unplanned.remove(position)) {
+                // the stations on both sides of removed stations are reconnected
+                if (removed)
+                    changed.add(position);
+                removed = false;
+                kept.add(position);
+            } else {
+                if (!removed && !kept.isEmpty())
+                    changed.add(kept.get(kept.size() - 1));
+                removed = true;
+            }
+        }
+        for (Position position : stations) {
+            if (unplanned.contains(position)) {
+                kept.add(position);
+                changed.add(position);
+            }
+        }
+        tour = strategyFinder.repair(kept, changed);
+        return tour;
+    }
+
+    /**
+     * Returns the nodes reached from {@code first} by the moves abandoned when
+     * the drone deviated from its path, which lead back to the path and follow it.
+     *
+     * @return the nodes along the abandoned moves
+     */
+    private List<PathNode> replay(PathNode first) {
+        List<PathNode> result = new ArrayList<>();
+        if (abandoned == null)
+            return result;
+        PathNode node = first;
+        for (Direction direction : abandoned) {
+            if (node.isGoal() || node.power < GameRules.powerConsumedPerMove)
+                break;
+            node = node.child(direction);
+            if (node == null)
+                break;
+            result.add(node);
         }
-        if (!moves.isEmpty())
-            return moves.peek();
-        return awayFromNegativity();
+        return result;
     }
 
     /**
@@ -82,17 +445,19 @@ public class StatefulDrone extends Drone {
         double bestScore = Double.POSITIVE_INFINITY;
         Direction result = null;
         for (Direction direction : Direction.values()) {
-            Position next = getPosition().nextPosition(direction);
-            if (!next.inPlayArea()) continue;
+            double latitude = getLatitude() + direction.latitudeDelta;
+            double longitude = getLongitude() + direction.longitudeDelta;
+            if (!GameRules.inPlayArea(latitude, longitude)) continue;
             double score = 0.0;
-            Station closeStation = map.closeStation(next);
-            for (Station station : map.stations) {
+            int closeStation = map.layout.closeStation(latitude, longitude);
+            for (int station = 0; station < map.layout.size(); station++) {
                 double weight = 0.0;
-                double distance = station.position.distance(next);
+                Position position = map.layout.getPosition(station);
+                double distance = Position.distance(position.latitude, position.longitude, latitude, longitude);
                 // negative stations should be avoided, especially
                 // those that would result in loss of coins or power
-                if (station.getCoins() < 0.0 || station.getPower() < 0.0)
-                    weight = station.equals(closeStation) ? 1e9 - station.getCoins() : 1.0;
+                if (map.getCoins(station) < 0.0 || map.getPower(station) < 0.0)
+                    weight = station == closeStation ? 1e9 - map.getCoins(station) : 1.0;
                 score += weight / (1e-9 + distance);
             }
             // minimising the score maximises the distances from negative stations
@@ -104,6 +469,107 @@ public class StatefulDrone extends Drone {
         return result;
     }
 
+    /**
+     * The resources of a station after a simulated move, linked to the changes
+     * made by the previous moves. Search nodes share the changes of their
+     * ancestors instead of copying the {@link GameMap}, stations which have
+     * not changed have the resources stored in the drone's map.
+     */
+    private static final class StationChange {
+        final int station;
+        final double coins, power;
+        final StationChange previous;
+
+        StationChange(int station, double coins, double power, StationChange previous) {
+            this.station = station;
+            this.coins = coins;
+            this.power = power;
+            this.previous = previous;
+        }
+
+        /**
+         * Returns the latest change of {@code station} in {@code changes},
+         * or {@code null} if the station has not changed.
+         *
+         * @return the latest change or {@code null}
+         */
+        static StationChange find(StationChange changes, int station) {
+            for (StationChange change = changes; change != null; change = change.previous)
+                if (change.station == station)
+                    return change;
+            return null;
+        }
+    }
+
+    /**
+     * The stations a search node has left to visit, in the planned order. The
+     * order is shared by all the nodes of a search, each plan storing the stations
+     * left as a set of indices into it, so visiting a station copies a few words
+     * rather than the order.
+     */
+    private final class Plan {
+        final Position[] targets;
+        /**
+         * The index of each station in the order, or {@code -1} if it is not planned
+         */
+        final int[] indices;
+        /**
+         * The indices of the stations left to visit, one bit for each target
+         */
+        final long[] remaining;
+        final int size;
+        /**
+         * The next station to visit, or {@code null} if none are left
+         */
+        final Position first;
+
+        /**
+         * Creates a {@code Plan} to visit all the {@code stations} in order.
+         */
+        Plan(List<Position> stations) {
+            targets = stations.toArray(new Position[0]);
+            Map<Position, Integer> order = new HashMap<>();
+            // the stations are at distinct positions, so each is planned once
+            for (int i = 0; i < targets.length; i++)
+                order.put(targets[i], i);
+            indices = new int[map.layout.size()];
+            for (int station = 0; station < indices.length; station++)
+                indices[station] = order.getOrDefault(map.layout.getPosition(station), -1);
+            remaining = new long[(targets.length + 63) >>> 6];
+            for (int i = 0; i < targets.length; i++)
+                remaining[i >>> 6] |= 1L << i;
+            size = targets.length;
+            first = size == 0 ? null : targets[0];
+        }
+
+        private Plan(Plan previous, long[] remaining) {
+            this.targets = previous.targets;
+            this.indices = previous.indices;
+            this.remaining = remaining;
+            this.size = previous.size - 1;
+            Position first = null;
+            for (int i = 0; i < remaining.length && first == null; i++)
+                if (remaining[i] != 0L)
+                    first = targets[(i << 6) + Long.numberOfTrailingZeros(remaining[i])];
+            this.first = first;
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        /**
+         * Returns the plan after visiting {@code station}, which is this plan
+         * if the station is not left to visit.
+         */
+        Plan visit(int station) {
+            int index = indices[station];
+            if (index < 0 || (remaining[index >>> 6] & 1L << index) == 0L)
+                return this;
+            long[] result = remaining.clone();
+            result[index >>> 6] &= ~(1L << index);
+            return new Plan(this, result);
+        }
+    }
+
     /**
      * The node in the path-finding problem.
      */
@@ -111,23 +577,24 @@ public class StatefulDrone extends Drone {
         final int move;
         final PathNode previous;
         final Direction direction;
-        final Position position;
+        final double latitude, longitude;
         double coins, power, distance, coinsLost;
-        GameMap map;
-        List<Position> plan;
+        StationChange changes;
+        Plan plan;
 
         /**
          * Creates a {@code PathNode} without a previous/parent node.
          */
-        PathNode(int move, Position position, double coins, double power, GameMap map, List<Position> plan) {
+        PathNode(int move, Position position, double coins, double power, Plan plan) {
             this.move = move;
             this.previous = null;
             this.direction = null;
-            this.position = position;
+            this.latitude = position.latitude;
+            this.longitude = position.longitude;
             this.coins = coins;
             this.power = power;
             this.coinsLost = this.distance = 0.0;
-            this.map = map;
+            this.changes = null;
             this.plan = plan;
         }
 
@@ -139,25 +606,26 @@ public class StatefulDrone extends Drone {
             this.move = previous.move + 1;
             this.previous = previous;
             this.direction = direction;
-            this.position = previous.position.nextPosition(direction);
+            this.latitude = previous.latitude + direction.latitudeDelta;
+            this.longitude = previous.longitude + direction.longitudeDelta;
             this.coins = previous.coins;
             this.power = previous.power - GameRules.powerConsumedPerMove;
             this.coinsLost = previous.coinsLost;
             this.distance = previous.distance + GameRules.moveDistance;
-            this.map = previous.map;
+            this.changes = previous.changes;
             this.plan = previous.plan;
         }
 
         /**
-         * Returns a list of directions starting from the first move.
+         * Returns the nodes of the path from the ancestor {@code from},
+         * excluding it, to this node.
          *
-         * @return list of directions
+         * @return array of nodes
          */
-        List<Direction> getDirections() {
-            LinkedList<Direction> result = new LinkedList<>();
-            for (PathNode node = this; node != null; node = node.previous)
-                if (node.direction != null)
-                    result.addFirst(node.direction);
+        PathNode[] getPath(PathNode from) {
+            PathNode[] result = new PathNode[move - from.move];
+            for (PathNode node = this; node != from; node = node.previous)
+                result[node.move - from.move - 1] = node;
             return result;
         }
 
@@ -167,28 +635,53 @@ public class StatefulDrone extends Drone {
             if (power < GameRules.powerConsumedPerMove)
                 return result;
             for (Direction direction : Direction.values()) {
-                PathNode next = new PathNode(this, direction);
-                if (!next.position.inPlayArea()) continue;
-                Station closeStation = map.closeStation(next.position);
-                // while the drone doesn't have to lose all these coins, it's better to avoid it
-                if (closeStation != null && closeStation.getCoins() < 0.0)
-                    next.coinsLost -= closeStation.getCoins();
-                Drone drone = new StatefulDrone(position, new GameMap(map), coins, power, maxMoves - move);
-                drone.move(direction);
-                if (closeStation != null) {
-                    next.map = drone.map;
-                    if (plan.contains(closeStation.position)) {
-                        next.plan = new ArrayList<>(plan);
-                        next.plan.remove(closeStation.position);
-                    }
-                }
-                next.coins = drone.getCoins();
-                next.power = drone.getPower();
-                result.add(next);
+                PathNode next = child(direction);
+                if (next != null)
+                    result.add(next);
             }
             return result;
         }
 
+        /**
+         * Returns the node resulting from moving in the specified {@code direction},
+         * or {@code null} if the move leaves the play area.
+         *
+         * @return child node or {@code null}
+         */
+        PathNode child(Direction direction) {
+            if (!GameRules.inPlayArea(latitude + direction.latitudeDelta, longitude + direction.longitudeDelta))
+                return null;
+            PathNode next = new PathNode(this, direction);
+            int closeStation = map.layout.closeStation(next.latitude, next.longitude);
+            if (closeStationCalls != null)
+                closeStationCalls.increment();
+            if (closeStation >= 0) {
+                StationChange change = StationChange.find(changes, closeStation);
+                double stationCoins = change == null ? map.getCoins(closeStation) : change.coins;
+                double stationPower = change == null ? map.getPower(closeStation) : change.power;
+                // while the drone doesn't have to lose all these coins, it's better to avoid it
+                if (stationCoins < 0.0)
+                    next.coinsLost -= stationCoins;
+                // transfer resources in the same way as GameMap.connect
+                double droneCoins = next.coins, dronePower = next.power;
+                next.coins += stationCoins;
+                if (next.coins < 0.0)
+                    next.coins = 0.0;
+                next.power += stationPower;
+                if (next.power < 0.0)
+                    next.power = 0.0;
+                double newCoins = stationCoins + droneCoins, newPower = stationPower + dronePower;
+                if (newCoins > 0.0)
+                    newCoins = 0.0;
+                if (newPower > 0.0)
+                    newPower = 0.0;
+                if (newCoins != stationCoins || newPower != stationPower)
+                    next.changes = new StationChange(closeStation, newCoins, newPower, changes);
+                next.plan = plan.visit(closeStation);
+            }
+            return next;
+        }
+
         @Override
         public boolean isGoal() {
             return plan.isEmpty() || move >= maxMoves || power < GameRules.powerConsumedPerMove;
@@ -203,7 +696,7 @@ public class StatefulDrone extends Drone {
          */
         @Override
         public int compareTo(PathNode other) {
-            int compPlanSize = plan.size() - other.plan.size();
+            int compPlanSize = plan.size - other.plan.size;
             if (compPlanSize != 0)
                 return compPlanSize;
             int compCoinsLost = Double.compare(coinsLost, other.coinsLost);
@@ -221,8 +714,8 @@ public class StatefulDrone extends Drone {
         private double expectedDistance() {
             if (plan.isEmpty())
                 return distance;
-            Position target = plan.get(0);
-            return distance + position.distance(target);
+            Position target = plan.first;
+            return distance + Position.distance(latitude, longitude, target.latitude, target.longitude);
         }
 
         /**
@@ -233,7 +726,13 @@ public class StatefulDrone extends Drone {
          */
         @Override
         public boolean equivalent(PathNode o) {
-            return o.position.equals(position);
+            return Position.equal(o.latitude, o.longitude, latitude, longitude);
+        }
+
+        @Override
+        public long equivalenceKey() {
+            // equivalent positions have the same hash code
+            return Position.hashCode(latitude, longitude);
         }
     }
 }
@@ -0,0 +1,57 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Creates {@link StatefulDrone}s, named {@code stateful}.
+ *
+ * <p>The order to visit the stations in from the initial position is the same
+ * for every drone of a map, so it is found once when the map is prepared and
+ * shared by the drones, which only search for their paths.
+ */
+public class StatefulDroneFactory implements DroneFactory {
+    @Override
+    public String getName() { return "stateful"; }
+
+    @Override
+    public boolean sharesMapState() { return true; }
+
+    @Override
+    public long getPlanningBudget(DroneSettings settings, TimeUnit unit) {
+        return settings.getPlanningBudget(unit);
+    }
+
+    @Override
+    public Function<GameMap, Drone> prepare(GameMap map, DroneSettings settings) {
+        List<Position> tour = create(new GameMap(map), settings).planTour();
+        return copy -> {
+            StatefulDrone drone = create(copy, settings);
+            drone.setTour(tour);
+            return drone;
+        };
+    }
+
+    private static StatefulDrone create(GameMap map, DroneSettings settings) {
+        StatefulDrone drone = new StatefulDrone(settings.initialPosition, map,
+                settings.initialCoins, settings.initialPower, settings.maxMoves);
+        drone.setBeamWidth(settings.getBeamWidth());
+        drone.setMaxNodes(settings.getMaxNodes());
+        drone.setMetrics(settings.getMetrics());
+        long budget = settings.getPlanningBudget(TimeUnit.NANOSECONDS);
+        if (budget != Long.MAX_VALUE) {
+            drone.setTimeLimit(budget, TimeUnit.NANOSECONDS);
+            drone.setBackground(settings.getBackground());
+        }
+        return drone;
+    }
+}
@@ -8,58 +8,56 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab;
 
-import java.util.*;
-
 /**
  * A {@link Drone} implementation which is memoryless, with limited look-ahead.
  */
 public class StatelessDrone extends Drone {
     /**
-     * Creates a {@code StatelessDrone} instance.
+     * The directions in the order they are scanned, cached since
+     * {@link Direction#values()} returns a new array
      */
-    public StatelessDrone(Position position, GameMap map, double coins, double power) {
-        super(position, map, coins, power);
-    }
+    private static final Direction[] DIRECTIONS = Direction.values();
 
     /**
-     * Implements a {@link Comparator} which compares {@link Direction}s
-     * based on the coins than will be transferred after the move.
+     * Creates a {@code StatelessDrone} instance.
      */
-    private static class ReachableStationsComparator implements Comparator<Direction> {
-        private final Map<Direction, Station> reachableStations;
-
-        public ReachableStationsComparator(Map<Direction, Station> reachableStations) {
-            this.reachableStations = reachableStations;
-        }
-
-        public int compare(Direction d1, Direction d2) {
-            Station s1 = reachableStations.get(d1), s2 = reachableStations.get(d2);
-            double coins1 = 0.0, coins2 = 0.0;
-            if (s1 != null)
-                coins1 = s1.getCoins();
-            if (s2 != null)
-                coins2 = s2.getCoins();
-            return Double.compare(coins1, coins2);
-        }
+    public StatelessDrone(Position position, GameMap map, double coins, double power) {
+        super(position, map, coins, power);
     }
 
     /**
      * Returns the best direction according to the amount of coins
      * that can be transferred, or a random one in the case of a tie.
      *
+     * <p>The directions inside the play area are scanned in the order of
+     * {@link Direction#values()}, and a random one of the tied best directions
+     * is chosen by reservoir sampling: when the {@code k}th direction tied with
+     * the best so far is found, for {@code k} at least 2, {@code random.nextInt(k)}
+     * is drawn and the direction replaces the chosen one if the result is 0.
+     * No other numbers are drawn, so a decision without ties draws none and
+     * simulations with the same seed make the same moves. The decision does
+     * not allocate.
+     *
      * @return the direction this drone chose to move next
      */
     public Direction getDirection() {
-        HashMap<Direction, Station> reachableStations = new HashMap<>();
-        ArrayList<Direction> dirs = new ArrayList<>();
-        for (Direction dir : Direction.values()) {
-            Position next = getPosition().nextPosition(dir);
-            if (next.inPlayArea()) {
-                reachableStations.put(dir, map.closeStation(next));
-                dirs.add(dir);
+        Direction result = null;
+        double bestCoins = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (Direction dir : DIRECTIONS) {
+            double latitude = getLatitude() + dir.latitudeDelta;
+            double longitude = getLongitude() + dir.longitudeDelta;
+            if (!GameRules.inPlayArea(latitude, longitude)) continue;
+            int station = map.layout.closeStation(latitude, longitude);
+            double coins = station < 0 ? 0.0 : map.getCoins(station);
+            if (coins > bestCoins) {
+                bestCoins = coins;
+                result = dir;
+                ties = 1;
+            } else if (coins == bestCoins && random.nextInt(++ties) == 0) {
+                result = dir;
             }
         }
-        Collections.shuffle(dirs, random);
-        return Collections.max(dirs, new ReachableStationsComparator(reachableStations));
+        return result;
     }
 }
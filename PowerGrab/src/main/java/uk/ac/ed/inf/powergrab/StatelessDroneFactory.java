@@ -0,0 +1,32 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Creates {@link StatelessDrone}s, named {@code stateless}.
+ */
+public class StatelessDroneFactory implements DroneFactory {
+    @Override
+    public String getName() { return "stateless"; }
+
+    @Override
+    public boolean sharesMapState() { return true; }
+
+    @Override
+    public long getPlanningBudget(DroneSettings settings, TimeUnit unit) { return -1; }
+
+    @Override
+    public Function<GameMap, Drone> prepare(GameMap map, DroneSettings settings) {
+        return copy -> new StatelessDrone(settings.initialPosition, copy,
+                settings.initialCoins, settings.initialPower);
+    }
+}
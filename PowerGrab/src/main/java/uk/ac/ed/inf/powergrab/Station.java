@@ -10,10 +10,20 @@ package uk.ac.ed.inf.powergrab;
 
 /**
  * Represents a station in the game.
+ *
+ * <p>The stations of a {@link GameMap} are views of the resources held by
+ * the map, other stations hold their own resources and describe the stations
+ * a map is created from.
  */
 public class Station {
     public final String id;
     public final Position position;
+    /**
+     * The map holding the resources of this station and the index
+     * of this station in the map, or {@code null} and {@code -1}
+     */
+    private final GameMap map;
+    private final int index;
     private double coins, power;
 
     /**
@@ -25,6 +35,8 @@ public class Station {
         if (id == null || position == null) throw new NullPointerException();
         this.id = id;
         this.position = position;
+        this.map = null;
+        this.index = -1;
         this.coins = coins;
         this.power = power;
     }
@@ -33,22 +45,35 @@ public class Station {
      * Creates station using the parameters of the given station.
      */
     public Station(Station station) {
-        this.id = station.id;
-        this.position = station.position;
-        this.coins = station.coins;
-        this.power = station.power;
+        this(station.id, station.position, station.getCoins(), station.getPower());
     }
 
-    public double getCoins() { return coins; }
+    /**
+     * Creates a view of the station at {@code index} in the {@code map}.
+     */
+    Station(GameMap map, int index) {
+        this.id = map.layout.getId(index);
+        this.position = map.layout.getPosition(index);
+        this.map = map;
+        this.index = index;
+    }
+
+    public double getCoins() { return map == null ? coins : map.getCoins(index); }
 
-    public double getPower() { return power; }
+    public double getPower() { return map == null ? power : map.getPower(index); }
 
     /**
      * If the drone is close to this station,
      * connect and transfer coins and power.
      */
     public void connect(Drone drone) {
-        if (drone.getPosition().distance(position) >= GameRules.closeDistance) return;
+        double distance = Position.distance(drone.getLatitude(), drone.getLongitude(),
+                position.latitude, position.longitude);
+        if (distance >= GameRules.closeDistance) return;
+        if (map != null) {
+            map.connect(index, drone);
+            return;
+        }
         double droneCoins = drone.getCoins(), dronePower = drone.getPower();
         drone.addCoins(coins);
         drone.addPower(power);
@@ -64,7 +89,8 @@ public class Station {
 
     @Override
     public String toString() {
-        return "Station id: " + id + ", position: (" + position.toString() + "), coins: " + coins + ", power: " + power;
+        return "Station id: " + id + ", position: (" + position.toString() + "), coins: " + getCoins()
+                + ", power: " + getPower();
     }
 
     /**
@@ -0,0 +1,132 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab;
+
+import java.util.List;
+
+/**
+ * An immutable uniform grid over the positions of a list of {@link Station}s,
+ * used for finding the station close to a position without scanning all of them.
+ *
+ * <p>Cells are at least {@link GameRules#closeDistance} wide, so a station close
+ * to a position is always in the position's cell or one of the 8 around it.
+ * The grid refers to stations by their index in the list, so it can be shared
+ * by all copies of a {@link GameMap}.
+ */
+final class StationGrid {
+    /**
+     * The grid has at most {@code CELLS_PER_STATION} cells per station or {@code MIN_CELLS}
+     * cells, the cells are enlarged when the stations are spread over a large area.
+     */
+    private static final int CELLS_PER_STATION = 4, MIN_CELLS = 1024;
+
+    private final double[] latitudes, longitudes;
+    private final double minLatitude, minLongitude, cellSize;
+    private final int rows, columns;
+    /**
+     * The indices of the stations in cell {@code c} are stored in ascending order
+     * in {@code cellStations[cellStart[c]]} to {@code cellStations[cellStart[c + 1] - 1]}.
+     */
+    private final int[] cellStart, cellStations;
+
+    /**
+     * Creates a grid over the positions of the given {@code stations}.
+     */
+    StationGrid(List<Station> stations) {
+        int size = stations.size();
+        latitudes = new double[size];
+        longitudes = new double[size];
+        double minLat = Double.POSITIVE_INFINITY, minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            Position position = stations.get(i).position;
+            latitudes[i] = position.latitude;
+            longitudes[i] = position.longitude;
+            minLat = Math.min(minLat, position.latitude);
+            minLon = Math.min(minLon, position.longitude);
+            maxLat = Math.max(maxLat, position.latitude);
+            maxLon = Math.max(maxLon, position.longitude);
+        }
+        if (size == 0)
+            minLat = minLon = maxLat = maxLon = 0.0;
+        double cell = GameRules.closeDistance;
+        double maxCells = Math.max(MIN_CELLS, (double) CELLS_PER_STATION * size);
+        while (cellCount(minLat, maxLat, cell) * cellCount(minLon, maxLon, cell) > maxCells)
+            cell *= 2.0;
+        minLatitude = minLat;
+        minLongitude = minLon;
+        cellSize = cell;
+        rows = (int) cellCount(minLat, maxLat, cell);
+        columns = (int) cellCount(minLon, maxLon, cell);
+        // counting sort of the station indices by cell, which keeps them in ascending order
+        cellStart = new int[rows * columns + 1];
+        int[] stationCells = new int[size];
+        for (int i = 0; i < size; i++) {
+            stationCells[i] = row(latitudes[i]) * columns + column(longitudes[i]);
+            cellStart[stationCells[i] + 1]++;
+        }
+        for (int c = 0; c < rows * columns; c++)
+            cellStart[c + 1] += cellStart[c];
+        cellStations = new int[size];
+        int[] next = new int[rows * columns];
+        for (int i = 0; i < size; i++) {
+            int c = stationCells[i];
+            cellStations[cellStart[c] + next[c]++] = i;
+        }
+    }
+
+    private static double cellCount(double min, double max, double cellSize) {
+        return Math.floor((max - min) / cellSize) + 1.0;
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude - minLatitude) / cellSize);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((longitude - minLongitude) / cellSize);
+    }
+
+    /**
+     * Returns the index of the station closest to the given position if it is
+     * close enough for resource transfer to occur, as defined in {@link GameRules}.
+     * Ties are resolved in favour of the station with the lowest index.
+     * Returns {@code -1} if no such station is found.
+     *
+     * @return index of station close to the position or {@code -1}
+     */
+    int closeStation(double latitude, double longitude) {
+        double row = Math.floor((latitude - minLatitude) / cellSize);
+        double column = Math.floor((longitude - minLongitude) / cellSize);
+        // also rejects NaN coordinates
+        if (!(row >= -1.0 && row <= rows && column >= -1.0 && column <= columns))
+            return -1;
+        int firstRow = Math.max((int) row - 1, 0), lastRow = Math.min((int) row + 1, rows - 1);
+        int firstColumn = Math.max((int) column - 1, 0), lastColumn = Math.min((int) column + 1, columns - 1);
+        int result = -1;
+        double shortestDistance = Double.POSITIVE_INFINITY;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellStations[k];
+                    // same calculation as Position.distance
+                    double dx = longitude - longitudes[i];
+                    double dy = latitude - latitudes[i];
+                    double distance = Math.sqrt(dx * dx + dy * dy);
+                    if (distance < shortestDistance || (distance == shortestDistance && i < result)) {
+                        shortestDistance = distance;
+                        result = i;
+                    }
+                }
+            }
+        }
+        return shortestDistance < GameRules.closeDistance ? result : -1;
+    }
+}
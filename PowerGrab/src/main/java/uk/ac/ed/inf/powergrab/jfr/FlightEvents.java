@@ -0,0 +1,40 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.jfr;
+
+/**
+ * Tells whether the events of this package can be emitted. The events extend
+ * {@code jdk.jfr.Event}, which Java 8 runtimes before 8u262 do not have, so
+ * code emitting them checks {@link #AVAILABLE} before creating one. The event
+ * classes are then never loaded on such runtimes.
+ *
+ * <p>When Flight Recorder is available but not recording, an event costs the
+ * allocation of the event, which is usually eliminated by the JIT compiler, and
+ * a check of whether it is enabled. The events are recorded with the standard
+ * tools, for example {@code java -XX:StartFlightRecording=filename=run.jfr ...}
+ * or {@code jcmd <pid> JFR.start}, and read with {@code jfr print --categories
+ * PowerGrab run.jfr} or JDK Mission Control.
+ */
+public final class FlightEvents {
+    /**
+     * {@code true} if the runtime has Flight Recorder
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private FlightEvents() {}
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
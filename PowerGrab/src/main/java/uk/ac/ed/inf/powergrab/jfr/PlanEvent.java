@@ -0,0 +1,46 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a stateful drone plans its path to the remaining stations.
+ * The duration of the event is the time taken by the plan, including the
+ * order of the stations and the search for the path.
+ */
+@Name("uk.ac.ed.inf.powergrab.Plan")
+@Label("Plan")
+@Category({ "PowerGrab", "Drone" })
+@Description("A stateful drone planning its path to the stations with coins")
+public final class PlanEvent extends Event {
+    @Label("Power")
+    @Description("The power of the drone, which is spent on each move")
+    public double power;
+
+    @Label("Stations Remaining")
+    @Description("The number of stations with coins")
+    public int stations;
+
+    @Label("Shared Tour")
+    @Description("Whether the order of the stations was planned in advance")
+    public boolean sharedTour;
+
+    @Label("Warm Start Nodes")
+    @Description("The number of moves of the previous plan the search was warm-started with")
+    public int warmStartNodes;
+
+    @Label("Plan Length")
+    @Description("The number of moves planned")
+    public int planLength;
+
+    @Label("Complete")
+    @Description("Whether the plan visits all the stations or uses all the moves, rather than being the best partial plan found")
+    public boolean complete;
+}
@@ -0,0 +1,39 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a type of drone has been simulated on the map of a day.
+ * The duration of the event is the time taken by the simulation, including
+ * preparing the map for the drone and writing the log files.
+ */
+@Name("uk.ac.ed.inf.powergrab.Run")
+@Label("Run")
+@Category({ "PowerGrab", "Program" })
+@Description("A simulation of a type of drone on the map of a day")
+public final class RunEvent extends Event {
+    @Label("Date")
+    @Description("The day of the map, as dd-MM-yyyy")
+    public String date;
+
+    @Label("Drone")
+    @Description("The type of the drone")
+    public String drone;
+
+    @Label("Score")
+    @Description("The fraction of the coins collected, the median of the seeds when sweeping seeds, or -1 on failure")
+    public double score;
+
+    @Label("Map Load Time")
+    @Description("The time taken to load the map of the day, which is shared by the types of drones")
+    @Timespan(Timespan.NANOSECONDS)
+    public long mapLoadTime;
+}
@@ -0,0 +1,47 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a heuristic search finishes. The duration of the event
+ * is the time taken by the search.
+ */
+@Name("uk.ac.ed.inf.powergrab.Search")
+@Label("Heuristic Search")
+@Category({ "PowerGrab", "Search" })
+@Description("A best-first search for a path")
+public final class SearchEvent extends Event {
+    /**
+     * The outcomes of a search
+     */
+    public static final String GOAL = "goal", EXHAUSTED = "exhausted", EXPANSIONS = "expansions",
+            TIME = "time", STOPPED = "stopped", HORIZON = "horizon", MEMORY = "memory";
+
+    @Label("Expansions")
+    @Description("The number of nodes expanded")
+    public long expansions;
+
+    @Label("Frontier Peak")
+    @Description("The largest size of the frontier set, or of the tree of a memory-bounded search")
+    public int frontierPeak;
+
+    @Label("Frontier Trims")
+    @Description("The number of nodes dropped from the full frontier set, or forgotten by a memory-bounded search")
+    public long frontierTrims;
+
+    @Label("Warm Start Nodes")
+    @Description("The number of nodes added to the frontier set along with the first node")
+    public int warmStartNodes;
+
+    @Label("Outcome")
+    @Description("Why the search finished: goal, exhausted, expansions, time, stopped, horizon when a memory-bounded search reached its maximum depth, or memory when it forgot too many nodes")
+    public String outcome;
+}
@@ -0,0 +1,40 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a TSP solver finds or repairs a tour. The duration of the
+ * event is the time taken by the solver.
+ */
+@Name("uk.ac.ed.inf.powergrab.Tour")
+@Label("Tour")
+@Category({ "PowerGrab", "Search" })
+@Description("A Travelling Salesman Problem solver ordering the stations")
+public final class TourEvent extends Event {
+    @Label("Solver")
+    public String solver;
+
+    @Label("Nodes")
+    @Description("The number of nodes in the tour, including the fixed initial node")
+    public int nodes;
+
+    @Label("Iterations")
+    @Description("The number of improving iterations or moves applied")
+    public long iterations;
+
+    @Label("Initial Length")
+    @Description("The length of the tour before it was improved")
+    public double initialLength;
+
+    @Label("Length")
+    @Description("The length of the tour found")
+    public double length;
+}
@@ -0,0 +1,116 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, such as latencies in nanoseconds, which
+ * can be recorded from many threads without locking.
+ *
+ * <p>As in an HDR histogram, values are counted in buckets whose width grows with
+ * the value: values below 64 have a bucket each, and every power of two above is
+ * split into 32 buckets, so percentiles are reported within about 3% of the value
+ * over the whole range of {@code long} with a fixed 15 KB of memory.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5, SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 2 * SUB_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder(), sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records a value, negative values are recorded as {@code 0}.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Adds the values recorded by {@code other} to this histogram.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) counts.addAndGet(i, n);
+        }
+        count.add(other.getCount());
+        sum.add(other.getSum());
+        max.accumulate(other.getMax());
+    }
+
+    public long getCount() { return count.sum(); }
+
+    public long getSum() { return sum.sum(); }
+
+    public long getMax() { return max.get(); }
+
+    /**
+     * Returns the mean of the values, or {@code 0} if there are none.
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0.0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns the greatest value counted in the same bucket as the {@code p}-th
+     * percentile of the values by the nearest-rank method, at most the maximum,
+     * or {@code 0} if there are none.
+     *
+     * @throws IllegalArgumentException if {@code p} is not between 0 and 100
+     */
+    public long getPercentile(double p) {
+        if (!(p >= 0.0 && p <= 100.0)) throw new IllegalArgumentException();
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            n += snapshot[i] = counts.get(i);
+        if (n == 0) return 0;
+        long rank = Math.max((long) Math.ceil(p / 100.0 * n), 1L), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the index of the bucket counting {@code value}.
+     */
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // the top bits of the value are between SUB_BUCKETS and 2 * SUB_BUCKETS
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the greatest value counted in bucket {@code index}.
+     */
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long top = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (top + 1) << shift;
+        // the last bucket ends at the greatest long
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,158 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.metrics;
+
+import org.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry of named counters and {@linkplain Histogram histograms}, which
+ * can be updated from many threads without locking.
+ *
+ * <p>Classes which record metrics take a {@code Metrics} through a setter and
+ * record nothing if it is {@code null}. Counters updated very often should be
+ * looked up once with {@link #counter} and kept, or counted locally and added
+ * at the end of the operation.
+ */
+public final class Metrics {
+    /**
+     * The percentiles of histograms which are exported
+     */
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0 };
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter named {@code name}, creating it if needed.
+     *
+     * @return counter
+     */
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Returns the histogram named {@code name}, creating it if needed.
+     *
+     * @return histogram
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Adds {@code value} to the counter named {@code name}.
+     */
+    public void add(String name, long value) {
+        counter(name).add(value);
+    }
+
+    /**
+     * Records {@code value} in the histogram named {@code name}.
+     */
+    public void record(String name, long value) {
+        histogram(name).record(value);
+    }
+
+    /**
+     * Adds the counters and histograms of {@code other} to those of this registry.
+     */
+    public void add(Metrics other) {
+        for (Map.Entry<String, LongAdder> entry : other.counters.entrySet())
+            counter(entry.getKey()).add(entry.getValue().sum());
+        for (Map.Entry<String, Histogram> entry : other.histograms.entrySet())
+            histogram(entry.getKey()).add(entry.getValue());
+    }
+
+    /**
+     * Returns the statistics of all metrics by name, sorted by name. Counters have a
+     * single statistic named after them, histograms have their count, mean, maximum
+     * and some percentiles, named after the histogram followed by a dot and the
+     * name of the statistic, such as {@code .p99}.
+     *
+     * @return map of statistics
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet())
+            result.put(entry.getKey(), entry.getValue().sum());
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            String name = entry.getKey();
+            Histogram histogram = entry.getValue();
+            result.put(name + ".count", histogram.getCount());
+            result.put(name + ".mean", histogram.getMean());
+            result.put(name + ".max", histogram.getMax());
+            for (double p : PERCENTILES)
+                result.put(name + ".p" + (int) p, histogram.getPercentile(p));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the {@linkplain #snapshot statistics} to {@code writer} as CSV
+     * with a line of name and value for each, which is not closed.
+     *
+     * @throws IOException if an I/O exception occurs while writing
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        for (Map.Entry<String, Number> entry : snapshot().entrySet()) {
+            writer.write(entry.getKey());
+            writer.write(',');
+            writer.write(entry.getValue().toString());
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Writes the {@linkplain #snapshot statistics} to {@code writer} as a JSON
+     * object, which is not closed.
+     *
+     * @throws IOException if an I/O exception occurs while writing
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writer.write('{');
+        boolean first = true;
+        for (Map.Entry<String, Number> entry : snapshot().entrySet()) {
+            if (!first) writer.write(',');
+            first = false;
+            JSONObject.quote(entry.getKey(), writer);
+            writer.write(':');
+            writer.write(JSONObject.numberToString(entry.getValue()));
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Registers this registry with the platform MBean server, under the name
+     * {@code uk.ac.ed.inf.powergrab:type=Metrics,name=<name>}, exposing each
+     * {@linkplain #snapshot statistic} as a read-only attribute.
+     *
+     * @return the name of the MBean
+     * @throws JMException if registration fails
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("uk.ac.ed.inf.powergrab:type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(this), objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,195 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.search;
+
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Implements a beam search algorithm, which keeps only the best nodes at each
+ * depth of the search and expands them in parallel.
+ * {@linkplain HeuristicSearchSolver.Node Nodes} have the responsibility of
+ * providing child nodes, cost calculation, and goal checking, as in a
+ * {@link HeuristicSearchSolver}.
+ *
+ * <p>The nodes of the beam are expanded concurrently on a {@link ForkJoinPool}, so
+ * {@link HeuristicSearchSolver.Node#childNodes} must be safe to call concurrently.
+ * The children are merged in the order of the beam and sorted stably, so the
+ * solution found does not depend on the number of threads.
+ *
+ * @param <N> the type of nodes
+ */
+public class BeamSearchSolver<N extends HeuristicSearchSolver.Node<N>> implements Solver<N, N> {
+    /**
+     * The number of nodes of the beam expanded by each task
+     */
+    private static final int NODES_PER_TASK = 8;
+
+    private int beamWidth, maxExploredSize = Integer.MAX_VALUE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private Metrics metrics = null;
+
+    /**
+     * Creates a {@code BeamSearchSolver} instance which keeps {@code beamWidth} nodes at each depth.
+     */
+    public BeamSearchSolver(int beamWidth) {
+        setBeamWidth(beamWidth);
+    }
+
+    public int getBeamWidth() { return beamWidth; }
+
+    /**
+     * Sets the number of nodes kept at each depth of the search.
+     *
+     * @throws IllegalArgumentException if {@code beamWidth} is less than one
+     */
+    public void setBeamWidth(int beamWidth) {
+        if (beamWidth < 1) throw new IllegalArgumentException();
+        this.beamWidth = beamWidth;
+    }
+
+    public int getMaxExploredSize() { return maxExploredSize; }
+
+    /**
+     * Sets the maximum size of the explored set, unbounded by default. When the size
+     * is exceeded, the node explored least recently is removed from the set.
+     *
+     * @throws IllegalArgumentException if {@code maxExploredSize} is negative
+     */
+    public void setMaxExploredSize(int maxExploredSize) {
+        if (maxExploredSize < 0) throw new IllegalArgumentException();
+        this.maxExploredSize = maxExploredSize;
+    }
+
+    public ForkJoinPool getPool() { return pool; }
+
+    /**
+     * Sets the pool the nodes are expanded on, the common pool by default.
+     *
+     * @throws NullPointerException if {@code pool} is {@code null}
+     */
+    public void setPool(ForkJoinPool pool) {
+        if (pool == null) throw new NullPointerException();
+        this.pool = pool;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the searches are counted in, under the names used by
+     * {@link HeuristicSearchSolver}, or {@code null} to not count them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs a beam search.
+     *
+     * <p>At each depth the children of all nodes in the beam are generated, children
+     * which are equivalent to a better node explored before or generated at the same
+     * depth are discarded, and the best {@code beamWidth} children form the next beam.
+     * Search finishes when the beam contains a goal, the best goal is returned.
+     *
+     * @param first the first node to search
+     * @return the solution or {@code null} if not found
+     */
+    @Override
+    public N solve(N first) {
+        if (metrics != null)
+            metrics.add(HeuristicSearchSolver.SEARCHES, 1);
+        ClosedSet<N> explored = new ClosedSet<>(maxExploredSize);
+        List<N> beam = new ArrayList<>(1);
+        beam.add(first);
+        while (!beam.isEmpty()) {
+            // the beam is sorted so the first goal is the best one
+            for (N node : beam)
+                if (node.isGoal()) return node;
+            for (N node : beam)
+                explored.put(node);
+            if (metrics != null)
+                metrics.add(HeuristicSearchSolver.EXPANSIONS, beam.size());
+            List<N> candidates = expand(beam);
+            // stable, so equal children stay in the order of their parents
+            candidates.sort(null);
+            ClosedSet<N> selected = new ClosedSet<>(Integer.MAX_VALUE);
+            beam = new ArrayList<>(Math.min(beamWidth, candidates.size()));
+            for (N child : candidates) {
+                if (beam.size() == beamWidth) break;
+                // candidates are sorted, so an equivalent selected child is at least as good
+                if (selected.get(child) != null) continue;
+                N visited = explored.get(child);
+                if (visited != null && child.compareTo(visited) >= 0) continue;
+                selected.put(child);
+                beam.add(child);
+            }
+        }
+        return null; // no solution found
+    }
+
+    /**
+     * Returns the children of the nodes in the {@code beam} in the order of the beam.
+     */
+    private List<N> expand(List<N> beam) {
+        // each task sets the children of its own nodes
+        List<List<N>> children = new ArrayList<>(Collections.nCopies(beam.size(), null));
+        Expansion expansion = new Expansion(beam, children, 0, beam.size());
+        if (beam.size() <= NODES_PER_TASK)
+            expansion.compute();
+        else
+            pool.invoke(expansion);
+        int count = 0;
+        for (List<N> list : children)
+            count += list.size();
+        List<N> result = new ArrayList<>(count);
+        for (List<N> list : children)
+            result.addAll(list);
+        return result;
+    }
+
+    /**
+     * Generates the children of the nodes of the beam between {@code from}
+     * inclusive and {@code to} exclusive, splitting the work into subtasks.
+     */
+    private final class Expansion extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<N> beam;
+        private final List<List<N>> children;
+        private final int from, to;
+
+        Expansion(List<N> beam, List<List<N>> children, int from, int to) {
+            this.beam = beam;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > NODES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expansion(beam, children, from, middle),
+                        new Expansion(beam, children, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                List<N> list = new ArrayList<>();
+                for (N child : beam.get(i).childNodes())
+                    list.add(child);
+                children.set(i, list);
+            }
+        }
+    }
+}
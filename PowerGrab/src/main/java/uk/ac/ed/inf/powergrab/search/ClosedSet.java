@@ -0,0 +1,157 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.search;
+
+import java.util.Arrays;
+
+/**
+ * The set of explored nodes of a {@link HeuristicSearchSolver}, a hash table
+ * of nodes by their {@linkplain HeuristicSearchSolver.Node#equivalenceKey equivalence key}
+ * holding at most one node of each group of equivalent nodes.
+ *
+ * <p>When the maximum size is exceeded, the node explored least recently is
+ * evicted. Entries are stored in parallel arrays, chained by key and linked
+ * in the order they were explored, so no objects are allocated per node.
+ *
+ * @param <N> the type of nodes
+ */
+final class ClosedSet<N extends HeuristicSearchSolver.Node<N>> {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private int size = 0;
+    /**
+     * The first entry of each bucket, or {@code -1}
+     */
+    private int[] buckets;
+    private Object[] nodes;
+    private long[] keys;
+    /**
+     * The next entry in the same bucket, or the next free entry
+     */
+    private int[] next;
+    /**
+     * The entries explored before and after each entry, or {@code -1}
+     */
+    private int[] older, newer;
+    private int oldest = -1, newest = -1, free = -1, used = 0;
+
+    /**
+     * Creates an empty {@code ClosedSet} which holds at most {@code maxSize} nodes.
+     */
+    ClosedSet(int maxSize) {
+        this.maxSize = maxSize;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        nodes = nodes == null ? new Object[capacity] : Arrays.copyOf(nodes, capacity);
+        keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        older = older == null ? new int[capacity] : Arrays.copyOf(older, capacity);
+        newer = newer == null ? new int[capacity] : Arrays.copyOf(newer, capacity);
+        // the entries stay in the same order but have to be added to the new buckets
+        for (int e = oldest; e >= 0; e = newer[e]) {
+            int bucket = bucket(keys[e]);
+            next[e] = buckets[bucket];
+            buckets[bucket] = e;
+        }
+    }
+
+    private int bucket(long key) {
+        int hash = Long.hashCode(key) * 0x9e3779b9;
+        return (hash ^ (hash >>> 16)) & (buckets.length - 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the explored node equivalent to {@code node}, or {@code null}.
+     *
+     * @return equivalent node or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    N get(N node) {
+        int e = find(node, node.equivalenceKey());
+        return e < 0 ? null : (N) nodes[e];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int find(N node, long key) {
+        for (int e = buckets[bucket(key)]; e >= 0; e = next[e])
+            if (keys[e] == key && node.equivalent((N) nodes[e]))
+                return e;
+        return -1;
+    }
+
+    /**
+     * Adds the explored {@code node}, replacing the equivalent node if there is one,
+     * and evicts the node explored least recently if the maximum size is exceeded.
+     */
+    void put(N node) {
+        long key = node.equivalenceKey();
+        int e = find(node, key);
+        if (e >= 0) {
+            unlinkAge(e);
+        } else {
+            if (free >= 0) {
+                e = free;
+                free = next[e];
+            } else {
+                if (used == nodes.length)
+                    allocate(nodes.length * 2);
+                e = used++;
+            }
+            keys[e] = key;
+            int bucket = bucket(key);
+            next[e] = buckets[bucket];
+            buckets[bucket] = e;
+            size++;
+        }
+        nodes[e] = node;
+        // link as the newest entry
+        older[e] = newest;
+        newer[e] = -1;
+        if (newest >= 0)
+            newer[newest] = e;
+        else
+            oldest = e;
+        newest = e;
+        while (size > maxSize)
+            remove(oldest);
+    }
+
+    private void unlinkAge(int e) {
+        if (older[e] >= 0) newer[older[e]] = newer[e];
+        else oldest = newer[e];
+        if (newer[e] >= 0) older[newer[e]] = older[e];
+        else newest = older[e];
+    }
+
+    private void remove(int e) {
+        unlinkAge(e);
+        int bucket = bucket(keys[e]);
+        if (buckets[bucket] == e) {
+            buckets[bucket] = next[e];
+        } else {
+            int previous = buckets[bucket];
+            while (next[previous] != e)
+                previous = next[previous];
+            next[previous] = next[e];
+        }
+        nodes[e] = null;
+        next[e] = free;
+        free = e;
+        size--;
+    }
+}
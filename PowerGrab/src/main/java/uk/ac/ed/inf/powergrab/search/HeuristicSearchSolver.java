@@ -8,9 +8,16 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab.search;
 
+import org.paulgeorgiou.collections.HeapPriorityDeque;
 import org.paulgeorgiou.collections.TreePriorityDeque;
+import uk.ac.ed.inf.powergrab.jfr.FlightEvents;
+import uk.ac.ed.inf.powergrab.jfr.SearchEvent;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
 
-import java.util.TreeMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implements a best-first search algorithm.
@@ -20,6 +27,18 @@ import java.util.TreeMap;
  * @param <N> the type of nodes
  */
 public class HeuristicSearchSolver<N extends HeuristicSearchSolver.Node<N>> implements Solver<N, N> {
+    /**
+     * The names of the counters of searches, nodes expanded and nodes
+     * dropped from the full frontier set, or forgotten by memory-bounded searches
+     */
+    public static final String SEARCHES = "search.searches", EXPANSIONS = "search.expansions",
+            FRONTIER_TRIMS = "search.frontierTrims";
+
+    /**
+     * The number of nodes a memory-bounded search may forget for each node it can hold
+     */
+    private static final long MAX_FORGOTTEN_PER_NODE = 1024L;
+
     /**
      * The interface all nodes have to implement for providing child nodes
      * and goal checking. Nodes also have to be {@link Comparable}, with
@@ -52,9 +71,22 @@ public class HeuristicSearchSolver<N extends HeuristicSearchSolver.Node<N>> impl
          * @return {@code true} if this node is equivalent to the parameter
          */
         default boolean equivalent(T o) { return equals(o); }
+
+        /**
+         * Returns a key used for finding equivalent nodes in the explored set.
+         * Equivalent nodes must have equal keys, nodes which are not equivalent
+         * should rarely have equal keys.
+         *
+         * @return equivalence key
+         */
+        default long equivalenceKey() { return hashCode(); }
     }
 
-    private int maxExploredSize, maxFrontierSize;
+    private int maxExploredSize, maxFrontierSize, maxNodes = Integer.MAX_VALUE;
+    private boolean heapFrontier = true;
+    private long maxExpansions = Long.MAX_VALUE, timeLimit = Long.MAX_VALUE;
+    private volatile boolean stopped = false;
+    private Metrics metrics = null;
 
     /**
      * Creates a {@code HeuristicSearchSolver} instance with unbounded frontier
@@ -76,7 +108,8 @@ public class HeuristicSearchSolver<N extends HeuristicSearchSolver.Node<N>> impl
     public int getMaxExploredSize() { return maxExploredSize; }
 
     /**
-     * Sets the maximum size of the explored set.
+     * Sets the maximum size of the explored set. When the size is exceeded,
+     * the node explored least recently is removed from the set.
      *
      * @throws IllegalArgumentException if {@code maxExploredSize} is negative
      */
@@ -97,6 +130,90 @@ public class HeuristicSearchSolver<N extends HeuristicSearchSolver.Node<N>> impl
         this.maxFrontierSize = maxFrontierSize;
     }
 
+    public int getMaxNodes() { return maxNodes; }
+
+    /**
+     * Sets the maximum number of nodes held by a search, or {@link Integer#MAX_VALUE}
+     * for no limit, which is the default. When set, the search runs in a memory-bounded
+     * mode in the style of SMA*, instead of trimming the frontier and explored sets.
+     * The nodes are held in a search tree; when it is full, the worst leaf is
+     * forgotten and its value is backed up into its parent, which regenerates it if
+     * its subtree becomes the most promising again. Each node may also keep the best
+     * of its forgotten children as its value.
+     *
+     * <p>Paths of more than {@code maxNodes - 1} steps from the first node cannot be
+     * held, so when the best node is that far from the first node and is not a goal,
+     * it is returned as the best partial solution that fits in the budget.
+     *
+     * <p>When the nodes worth holding do not fit, the search may keep forgetting and
+     * regenerating the same nodes, so once it has forgotten {@value #MAX_FORGOTTEN_PER_NODE}
+     * times as many nodes as it can hold, it gives up as if it ran out of expansions.
+     *
+     * @throws IllegalArgumentException if {@code maxNodes} is less than two
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 2) throw new IllegalArgumentException();
+        this.maxNodes = maxNodes;
+    }
+
+    public boolean getHeapFrontier() { return heapFrontier; }
+
+    /**
+     * Sets whether the frontier set is a {@link HeapPriorityDeque} rather than
+     * a {@link TreePriorityDeque}, {@code true} by default. Both order nodes in
+     * the same way, so the search finds the same solution with either.
+     */
+    public void setHeapFrontier(boolean heapFrontier) {
+        this.heapFrontier = heapFrontier;
+    }
+
+    public long getMaxExpansions() { return maxExpansions; }
+
+    /**
+     * Sets the maximum number of nodes expanded by a search, unbounded by default.
+     * When the budget is exhausted, the best node explored so far is returned.
+     *
+     * @throws IllegalArgumentException if {@code maxExpansions} is less than one
+     */
+    public void setMaxExpansions(long maxExpansions) {
+        if (maxExpansions < 1) throw new IllegalArgumentException();
+        this.maxExpansions = maxExpansions;
+    }
+
+    public long getTimeLimit(TimeUnit unit) {
+        return timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(timeLimit, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time a search may take, unbounded by default. When the time
+     * is up, the best node explored so far is returned.
+     *
+     * @throws IllegalArgumentException if {@code timeLimit} is negative
+     */
+    public void setTimeLimit(long timeLimit, TimeUnit unit) {
+        if (timeLimit < 0) throw new IllegalArgumentException();
+        this.timeLimit = unit.toNanos(timeLimit);
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the searches are counted in, or {@code null}
+     * to not count them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Stops the search running in another thread, which returns the best node
+     * explored so far. Searches started later stop after their first expansion.
+     * A search also stops when its thread is interrupted.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
     /**
      * Runs a heuristic search.
      *
@@ -107,28 +224,169 @@ public class HeuristicSearchSolver<N extends HeuristicSearchSolver.Node<N>> impl
      * @return the solution or {@code null} if not found
      */
     public N solve(N first) {
-        // for the explored set consider equivalent nodes to be equal
-        TreeMap<N, N> explored = new TreeMap<>((n1, n2) -> n1.equivalent(n2) ? 0 : n1.compareTo(n2));
-        TreePriorityDeque<N> frontier = new TreePriorityDeque<>();
-        frontier.setMaxSize(maxFrontierSize); // limit the size of the frontier set
+        return solve(first, Collections.emptyList());
+    }
+
+    /**
+     * Runs a heuristic search warm-started with the {@code warmStart} nodes,
+     * which are added to the frontier along with {@code first}. These are
+     * usually descendants of {@code first} along a previous solution, so the
+     * search resumes from the best of them instead of repeating the work.
+     *
+     * <p>If the search runs out of expansions or time, or is stopped, the
+     * best node explored so far other than {@code first} is returned, so that
+     * the result always makes progress. Search is anytime in this way: the
+     * larger the budget, the better the result.
+     *
+     * <p>Each search emits a {@link SearchEvent} to Flight Recorder.
+     *
+     * @param first the first node to search
+     * @param warmStart the nodes added to the frontier along with {@code first}
+     * @return the solution or {@code null} if not found
+     */
+    public N solve(N first, Collection<? extends N> warmStart) {
+        if (maxNodes != Integer.MAX_VALUE)
+            return solveBounded(first, warmStart);
+        // the explored set holds one of each group of equivalent nodes
+        ClosedSet<N> explored = new ClosedSet<>(maxExploredSize);
+        Deque<N> frontier;
+        // limit the size of the frontier set
+        if (heapFrontier) {
+            HeapPriorityDeque<N> heap = new HeapPriorityDeque<>();
+            heap.setMaxSize(maxFrontierSize);
+            frontier = heap;
+        } else {
+            TreePriorityDeque<N> tree = new TreePriorityDeque<>();
+            tree.setMaxSize(maxFrontierSize);
+            frontier = tree;
+        }
+        SearchEvent event = FlightEvents.AVAILABLE ? new SearchEvent() : null;
+        if (event != null)
+            event.begin();
         frontier.add(first);
-        while (!frontier.isEmpty()) {
-            N node = frontier.removeFirst(); // get the current best node
-            if (node.isGoal()) return node;
-            // if a lower cost node has been found it will replace
-            // the existing one in the explored set
-            explored.put(node, node);
-            // limit the size of the explored set
-            while (explored.size() > maxExploredSize)
-                explored.pollLastEntry();
-            for (N child : node.childNodes()) {
-                // get the equivalent node in the explored set if it exists
-                N visited = explored.get(child);
-                // add child to frontier if not already explored or it has lower cost
-                if (visited == null || child.compareTo(visited) < 0)
-                    frontier.addLast(child);
+        for (N node : warmStart)
+            frontier.addLast(node);
+        long start = timeLimit == Long.MAX_VALUE ? 0L : System.nanoTime(), expansions = 0L, trims = 0L;
+        int peak = frontier.size();
+        String outcome = SearchEvent.EXHAUSTED;
+        N best = null;
+        try {
+            while (!frontier.isEmpty()) {
+                N node = frontier.removeFirst(); // get the current best node
+                if (node.isGoal()) {
+                    outcome = SearchEvent.GOAL;
+                    return node;
+                }
+                if (node != first) {
+                    if (best == null || node.compareTo(best) < 0)
+                        best = node;
+                    if (expansions >= maxExpansions || stopped || Thread.currentThread().isInterrupted()
+                            || (timeLimit != Long.MAX_VALUE && System.nanoTime() - start >= timeLimit)) {
+                        outcome = expansions >= maxExpansions ? SearchEvent.EXPANSIONS
+                                : stopped || Thread.currentThread().isInterrupted() ? SearchEvent.STOPPED
+                                : SearchEvent.TIME;
+                        return best; // out of budget
+                    }
+                }
+                // if a lower cost node has been found it will replace
+                // the existing one in the explored set
+                explored.put(node);
+                for (N child : node.childNodes()) {
+                    // get the equivalent node in the explored set if it exists
+                    N visited = explored.get(child);
+                    // add child to frontier if not already explored or it has lower cost
+                    if (visited == null || child.compareTo(visited) < 0) {
+                        int size = frontier.size();
+                        frontier.addLast(child);
+                        // the full frontier drops either the child or its worst node
+                        if (frontier.size() == size)
+                            trims++;
+                    }
+                }
+                if (frontier.size() > peak)
+                    peak = frontier.size();
+                expansions++;
             }
+        } finally {
+            record(event, expansions, peak, trims, warmStart.size(), outcome);
         }
         return null; // no solution found
     }
+
+    /**
+     * Runs a heuristic search holding at most {@link #getMaxNodes} nodes, in the style
+     * of SMA*. The {@code warmStart} nodes are kept while there is room for them, but
+     * unlike the other nodes are not regenerated once forgotten.
+     *
+     * @return the solution, the best partial solution at the maximum depth,
+     *         or {@code null} if not found
+     * @see MemoryBoundedTree
+     */
+    private N solveBounded(N first, Collection<? extends N> warmStart) {
+        SearchEvent event = FlightEvents.AVAILABLE ? new SearchEvent() : null;
+        if (event != null)
+            event.begin();
+        MemoryBoundedTree<N> tree = new MemoryBoundedTree<>(first, maxNodes);
+        for (N node : warmStart)
+            tree.addWarmStart(node);
+        long start = timeLimit == Long.MAX_VALUE ? 0L : System.nanoTime(), expansions = 0L;
+        long maxForgotten = MAX_FORGOTTEN_PER_NODE * maxNodes;
+        String outcome = SearchEvent.EXHAUSTED;
+        N best = null;
+        try {
+            MemoryBoundedTree<N>.Entry entry;
+            while ((entry = tree.best()) != null) {
+                N node = entry.node;
+                if (node.isGoal()) {
+                    outcome = SearchEvent.GOAL;
+                    return node;
+                }
+                if (tree.atHorizon(entry)) {
+                    outcome = SearchEvent.HORIZON;
+                    return node; // the best path which fits in the tree
+                }
+                if (node != first) {
+                    if (best == null || node.compareTo(best) < 0)
+                        best = node;
+                    if (expansions >= maxExpansions || stopped || Thread.currentThread().isInterrupted()
+                            || (timeLimit != Long.MAX_VALUE && System.nanoTime() - start >= timeLimit)) {
+                        outcome = expansions >= maxExpansions ? SearchEvent.EXPANSIONS
+                                : stopped || Thread.currentThread().isInterrupted() ? SearchEvent.STOPPED
+                                : SearchEvent.TIME;
+                        return best; // out of budget
+                    }
+                    if (tree.forgottenCount() >= maxForgotten) {
+                        outcome = SearchEvent.MEMORY;
+                        return best; // thrashing
+                    }
+                }
+                // generates the children, or regenerates the forgotten ones
+                tree.expand(entry);
+                expansions++;
+            }
+        } finally {
+            record(event, expansions, tree.peakSize(), tree.forgottenCount(), warmStart.size(), outcome);
+        }
+        return null; // no solution found
+    }
+
+    /**
+     * Adds a search to the metrics and emits its {@link SearchEvent}.
+     */
+    private void record(SearchEvent event, long expansions, int peak, long trims, int warmStartNodes,
+                        String outcome) {
+        if (metrics != null) {
+            metrics.add(SEARCHES, 1);
+            metrics.add(EXPANSIONS, expansions);
+            metrics.add(FRONTIER_TRIMS, trims);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.expansions = expansions;
+            event.frontierPeak = peak;
+            event.frontierTrims = trims;
+            event.warmStartNodes = warmStartNodes;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
 }
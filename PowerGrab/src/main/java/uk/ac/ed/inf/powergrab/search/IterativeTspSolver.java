@@ -8,9 +8,13 @@ file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
 
 package uk.ac.ed.inf.powergrab.search;
 
+import uk.ac.ed.inf.powergrab.jfr.FlightEvents;
+import uk.ac.ed.inf.powergrab.jfr.TourEvent;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -21,9 +25,15 @@ import java.util.List;
  * @param <N> the type of nodes
  */
 public class IterativeTspSolver<N extends TspSolver.Node<N>> implements TspSolver<N> {
+    /**
+     * The name of the counter of <em>3-opt</em> iterations
+     */
+    public static final String THREE_OPT_ITERATIONS = "tsp.threeOptIterations";
+
     private int maxIterations;
     private N initialNode = null;
     private boolean symmetric = true;
+    private Metrics metrics = null;
 
     /**
      * Creates an {@code IterativeTspSolver} instance without a limit on iterations.
@@ -71,6 +81,16 @@ public class IterativeTspSolver<N extends TspSolver.Node<N>> implements TspSolve
         this.symmetric = symmetric;
     }
 
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the iterations are counted in, or {@code null}
+     * to not count them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * First constructs a solution using the {@linkplain #solveNearestNeighbours Nearest Neighbours heuristic}
      * and then iteratively applies the {@linkplain #applyHeuristics 3-opt heuristic}.
@@ -81,175 +101,334 @@ public class IterativeTspSolver<N extends TspSolver.Node<N>> implements TspSolve
      */
     @Override
     public List<N> solve(Collection<? extends N> nodes) {
-        List<N> result = solveNearestNeighbours(nodes);
-        result = applyHeuristics(result);
-        return result;
+        Distances distances = new Distances(nodes);
+        int[] tour = distances.nearestNeighbours();
+        threeOpt(distances, tour);
+        return distances.nodesOf(tour);
+    }
+
+    /**
+     * Applies the <em>3-opt</em> heuristic to {@code tour} until it finds no
+     * improvement or the maximum number of iterations is reached, emitting
+     * a {@link TourEvent} to Flight Recorder.
+     */
+    private void threeOpt(Distances distances, int[] tour) {
+        TourEvent event = FlightEvents.AVAILABLE ? new TourEvent() : null;
+        if (event != null && event.isEnabled()) {
+            event.begin();
+            event.initialLength = distances.length(tour);
+        }
+        int iterations = 0;
+        if (tour.length >= 2)
+            while (iterations < maxIterations && distances.threeOpt(tour))
+                iterations++;
+        if (metrics != null)
+            metrics.add(THREE_OPT_ITERATIONS, iterations);
+        if (event != null && event.shouldCommit()) {
+            event.solver = getClass().getSimpleName();
+            event.nodes = distances.size;
+            event.iterations = iterations;
+            event.length = distances.length(tour);
+            event.commit();
+        }
     }
 
     /**
      * Returns a solution found using the <em>Nearest Neighbours</em> heuristic.
      */
     public List<N> solveNearestNeighbours(Collection<? extends N> nodes) {
-        ArrayList<N> result = new ArrayList<>(nodes.size());
-        if (nodes.isEmpty()) return result;
-        ArrayList<N> available = new ArrayList<>(nodes);
-        N previous;
-        if (initialNode == null) {
-            previous = available.remove(0);
-            result.add(previous);
-        } else {
-            previous = initialNode;
-        }
-        while (!available.isEmpty()) {
-            double bestDistance = Double.POSITIVE_INFINITY;
-            N bestNode = null;
-            for (N node : available) {
-                double distance = previous.distance(node);
-                if (distance < bestDistance) {
-                    bestDistance = distance;
-                    bestNode = node;
-                }
-            }
-            if (bestNode == null) break;
-            available.remove(bestNode);
-            result.add(bestNode);
-            previous = bestNode;
-        }
-        return result;
+        Distances distances = new Distances(nodes);
+        return distances.nodesOf(distances.nearestNeighbours());
     }
 
     /**
      * Returns a solution found by iteratively applying the <em>3-opt</em> heuristic.
      */
     public List<N> applyHeuristics(Collection<? extends N> nodes) {
-        ArrayList<N> result = new ArrayList<>(nodes);
-        if (result.size() < 2) return result;
-        for (int i = 0; i < maxIterations; i++)
-            if (!threeOpt(result))
-                break;
-        return result;
+        Distances distances = new Distances(nodes);
+        int[] tour = new int[distances.count];
+        for (int a = 0; a < tour.length; a++)
+            tour[a] = a;
+        threeOpt(distances, tour);
+        return distances.nodesOf(tour);
     }
 
     /**
-     * Applies the <em>3-opt</em> heuristic once.
-     *
-     * <p>Adapted from the pseudocode in
-     * <a href="https://en.wikipedia.org/wiki/3-opt" target="_top">Wikipedia: 3-opt</a>.
-     *
-     * @return {@code true} if {@code nodes} has been modified
+     * The nodes of a TSP identified by their index, with the distances between
+     * them computed once and stored in a matrix. Tours are stored as arrays of
+     * node indices, excluding the fixed initial node.
      */
-    private boolean threeOpt(ArrayList<N> nodes) {
-        ArrayList<N> keyNodes = new ArrayList<>(6);
-        int bestI = 0, bestJ = 0, bestK = 0;
-        boolean bestSwap = false, bestRevA = false, bestRevB = false;
-        double bestDelta = 0.0, currentTotalDistance = 0.0;
-        if (!symmetric)
-            currentTotalDistance = totalDistance(nodes);
-        for (int i = 0, sz = nodes.size(); i < sz; i++) {
-            for (int j = i + 1; j < sz; j++) {
-                for (int k = j + 1; k <= sz; k++) {
-                    for (int iSwap = 0; iSwap < 2; iSwap++) {
-                        for (int iRevA = 0; iRevA < 2; iRevA++) {
-                            for (int iRevB = 0; iRevB < 2; iRevB++) {
-                                if (iSwap + iRevA + iRevB == 0) continue;
-                                boolean swap = iSwap != 0, revA = iRevA != 0, revB = iRevB != 0;
-                                double before, after;
-                                if (symmetric) {
-                                    // if the TSP is symmetric we can calculate the distance delta
-                                    // by considering just 6 key nodes
-                                    addKeyNodes(keyNodes, nodes, i, j, k);
-                                    before = keyNodesDistance(keyNodes);
-                                    rearrange(keyNodes, 1, 3, 5, swap, revA, revB);
-                                    after = keyNodesDistance(keyNodes);
-                                } else {
-                                    // if the TSP is not symmetric we have to calculate the distance
-                                    // delta from the whole rearrangement
-                                    ArrayList<N> rearrangement = new ArrayList<>(nodes);
-                                    rearrange(rearrangement, i, j, k, swap, revA, revB);
-                                    after = totalDistance(rearrangement);
-                                    before = currentTotalDistance;
-                                }
-                                double delta = after - before;
-                                if (delta < bestDelta) {
-                                    bestDelta = delta;
-                                    bestI = i;
-                                    bestJ = j;
-                                    bestK = k;
-                                    bestSwap = swap;
-                                    bestRevA = revA;
-                                    bestRevB = revB;
+    private final class Distances {
+        /**
+         * The nodes to visit followed by the initial node if it has been set
+         */
+        final List<N> nodes;
+        /**
+         * The number of nodes to visit
+         */
+        final int count;
+        /**
+         * The index of the initial node or {@code -1}
+         */
+        final int initial;
+        final int size;
+        /**
+         * The distance from node {@code a} to node {@code b} is {@code matrix[a * size + b]}
+         */
+        final double[] matrix;
+        /**
+         * The distances along the tour used in the asymmetric TSP
+         */
+        double[] forward, backward;
+
+        Distances(Collection<? extends N> nodes) {
+            this.nodes = new ArrayList<>(nodes.size() + 1);
+            this.nodes.addAll(nodes);
+            count = nodes.size();
+            if (initialNode != null) {
+                this.nodes.add(initialNode);
+                initial = count;
+            } else {
+                initial = -1;
+            }
+            size = this.nodes.size();
+            matrix = new double[size * size];
+            for (int a = 0; a < size; a++) {
+                N node = this.nodes.get(a);
+                for (int b = 0; b < size; b++)
+                    if (a != b)
+                        matrix[a * size + b] = node.distance(this.nodes.get(b));
+            }
+        }
+
+        double distance(int a, int b) {
+            return matrix[a * size + b];
+        }
+
+        /**
+         * Returns the length of {@code tour}, starting from the initial node if it has been set.
+         */
+        double length(int[] tour) {
+            double result = tour.length == 0 ? 0.0 : edge(initial, tour[0]);
+            for (int t = 1; t < tour.length; t++)
+                result += distance(tour[t - 1], tour[t]);
+            return result;
+        }
+
+        List<N> nodesOf(int[] tour) {
+            List<N> result = new ArrayList<>(tour.length);
+            for (int a : tour)
+                result.add(nodes.get(a));
+            return result;
+        }
+
+        /**
+         * Returns a tour constructed using the <em>Nearest Neighbours</em> heuristic.
+         */
+        int[] nearestNeighbours() {
+            int[] result = new int[count];
+            if (count == 0) return result;
+            // the nodes not yet visited, in their original order
+            int[] available = new int[count];
+            for (int a = 0; a < count; a++)
+                available[a] = a;
+            int remaining = count, length = 0, previous;
+            if (initial < 0) {
+                previous = available[0];
+                System.arraycopy(available, 1, available, 0, --remaining);
+                result[length++] = previous;
+            } else {
+                previous = initial;
+            }
+            while (remaining > 0) {
+                double bestDistance = Double.POSITIVE_INFINITY;
+                int best = -1;
+                for (int k = 0; k < remaining; k++) {
+                    double distance = distance(previous, available[k]);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = k;
+                    }
+                }
+                if (best < 0) break;
+                previous = available[best];
+                System.arraycopy(available, best + 1, available, best, --remaining - best);
+                result[length++] = previous;
+            }
+            return length == count ? result : Arrays.copyOf(result, length);
+        }
+
+        /**
+         * Applies the <em>3-opt</em> heuristic once.
+         *
+         * <p>Adapted from the pseudocode in
+         * <a href="https://en.wikipedia.org/wiki/3-opt" target="_top">Wikipedia: 3-opt</a>.
+         *
+         * @return {@code true} if {@code tour} has been modified
+         */
+        boolean threeOpt(int[] tour) {
+            int[] keyNodes = new int[6];
+            int bestI = 0, bestJ = 0, bestK = 0;
+            boolean bestSwap = false, bestRevA = false, bestRevB = false;
+            double bestDelta = 0.0, minDelta = 0.0;
+            if (!symmetric) {
+                computePathDistances(tour);
+                // the deltas are differences of sums along the tour, so moves which
+                // do not change its length may appear to shorten it by rounding errors
+                minDelta = -1e-12 * (forward[tour.length - 1] + edge(initial, tour[0]));
+            }
+            for (int i = 0, sz = tour.length; i < sz; i++) {
+                for (int j = i + 1; j < sz; j++) {
+                    for (int k = j + 1; k <= sz; k++) {
+                        for (int iSwap = 0; iSwap < 2; iSwap++) {
+                            for (int iRevA = 0; iRevA < 2; iRevA++) {
+                                for (int iRevB = 0; iRevB < 2; iRevB++) {
+                                    if (iSwap + iRevA + iRevB == 0) continue;
+                                    boolean swap = iSwap != 0, revA = iRevA != 0, revB = iRevB != 0;
+                                    double before, after;
+                                    if (symmetric) {
+                                        // if the TSP is symmetric we can calculate the distance delta
+                                        // by considering just 6 key nodes
+                                        addKeyNodes(keyNodes, tour, i, j, k);
+                                        before = keyNodesDistance(keyNodes);
+                                        rearrange(keyNodes, 1, 3, 5, swap, revA, revB);
+                                        after = keyNodesDistance(keyNodes);
+                                    } else {
+                                        // if the TSP is not symmetric the distances of the reversed
+                                        // parts change too, so we also need the distances along them
+                                        before = pathDistance(tour, i, j, k, false, false, false);
+                                        after = pathDistance(tour, i, j, k, swap, revA, revB);
+                                    }
+                                    double delta = after - before;
+                                    if (delta < bestDelta) {
+                                        bestDelta = delta;
+                                        bestI = i;
+                                        bestJ = j;
+                                        bestK = k;
+                                        bestSwap = swap;
+                                        bestRevA = revA;
+                                        bestRevB = revB;
+                                    }
                                 }
                             }
                         }
                     }
                 }
             }
+            if (bestDelta < minDelta) {
+                // found an improvement so rearrange the whole tour
+                rearrange(tour, bestI, bestJ, bestK, bestSwap, bestRevA, bestRevB);
+                return true;
+            }
+            return false;
         }
-        if (bestDelta < 0.0) {
-            // found an improvement so rearrange the whole tour
-            rearrange(nodes, bestI, bestJ, bestK, bestSwap, bestRevA, bestRevB);
-            return true;
+
+        /**
+         * Extracts the key nodes that will affect the total distance of the tour
+         * based on {@code i, j, k}, {@code -1} standing for no node.
+         */
+        void addKeyNodes(int[] keyNodes, int[] tour, int i, int j, int k) {
+            keyNodes[0] = i == 0 ? initial : tour[i - 1];
+            keyNodes[1] = tour[i];
+            keyNodes[2] = tour[j - 1];
+            keyNodes[3] = tour[j];
+            keyNodes[4] = tour[k - 1];
+            keyNodes[5] = k == tour.length ? -1 : tour[k];
         }
-        return false;
-    }
 
-    /**
-     * Extracts the key nodes that will affect the total distance of the tour
-     * based on {@code i, j, k}.
-     */
-    private void addKeyNodes(ArrayList<N> keyNodes, ArrayList<N> nodes, int i, int j, int k) {
-        keyNodes.clear();
-        keyNodes.add(i == 0 ? initialNode : nodes.get(i - 1));
-        keyNodes.add(nodes.get(i));
-        keyNodes.add(nodes.get(j - 1));
-        keyNodes.add(nodes.get(j));
-        keyNodes.add(nodes.get(k - 1));
-        keyNodes.add(k == nodes.size() ? null : nodes.get(k));
+        /**
+         * Returns the distance between the key nodes that will affect the total distance.
+         */
+        double keyNodesDistance(int[] keyNodes) {
+            double result = 0.0;
+            for (int i = 0; i < 6; i += 2) {
+                int a = keyNodes[i], b = keyNodes[i + 1];
+                if (a >= 0 && b >= 0)
+                    result += distance(a, b);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the distance between {@code a} and {@code b},
+         * or zero if either is {@code -1}.
+         */
+        double edge(int a, int b) {
+            return a < 0 || b < 0 ? 0.0 : distance(a, b);
+        }
+
+        /**
+         * Computes the distances along {@code tour} from its first node to each node,
+         * in {@link #forward} when travelling forwards and {@link #backward} when
+         * travelling backwards.
+         */
+        void computePathDistances(int[] tour) {
+            if (forward == null) {
+                forward = new double[count];
+                backward = new double[count];
+            }
+            forward[0] = backward[0] = 0.0;
+            for (int t = 1; t < tour.length; t++) {
+                forward[t] = forward[t - 1] + distance(tour[t - 1], tour[t]);
+                backward[t] = backward[t - 1] + distance(tour[t], tour[t - 1]);
+            }
+        }
+
+        /**
+         * Returns the distance of the part of the tour which is changed by the
+         * rearrangement according to {@code i, j, k, swap, revA, revB}, from the
+         * node before position {@code i} to the node at position {@code k},
+         * using the distances computed by {@link #computePathDistances}.
+         */
+        double pathDistance(int[] tour, int i, int j, int k, boolean swap, boolean revA, boolean revB) {
+            // the parts in their order after the rearrangement, as in rearrange
+            int firstFrom = swap ? j : i, firstTo = swap ? k : j;
+            int secondFrom = swap ? i : j, secondTo = swap ? j : k;
+            int firstHead = tour[revA ? firstTo - 1 : firstFrom], firstTail = tour[revA ? firstFrom : firstTo - 1];
+            int secondHead = tour[revB ? secondTo - 1 : secondFrom], secondTail = tour[revB ? secondFrom : secondTo - 1];
+            return edge(i == 0 ? initial : tour[i - 1], firstHead)
+                    + partDistance(firstFrom, firstTo, revA)
+                    + distance(firstTail, secondHead)
+                    + partDistance(secondFrom, secondTo, revB)
+                    + edge(secondTail, k == tour.length ? -1 : tour[k]);
+        }
+
+        /**
+         * Returns the distance along the tour between positions {@code from} inclusive
+         * and {@code to} exclusive, travelling backwards if {@code reversed}.
+         */
+        double partDistance(int from, int to, boolean reversed) {
+            return reversed ? backward[to - 1] - backward[from] : forward[to - 1] - forward[from];
+        }
     }
 
     /**
      * Partitions the tour according to {@code i, j, k} and reconnects it
      * according to {@code swap, revA, revB}.
      */
-    private void rearrange(ArrayList<N> nodes, int i, int j, int k, boolean swap, boolean revA, boolean revB) {
+    private static void rearrange(int[] tour, int i, int j, int k, boolean swap, boolean revA, boolean revB) {
         if (swap) {
             // To swap the two halves of PQRS we can
             //  1. Reverse all of it (SRQP)
             //  2. Reverse the first half (RSQP)
             //  3. Reverse the second half (RSPQ)
-            Collections.reverse(nodes.subList(i, k));
+            reverse(tour, i, k);
             j = k - j + i; // if the two parts have different sizes we need to update the midpoint
             revA = !revA;
             revB = !revB;
         }
-        if (revA) Collections.reverse(nodes.subList(i, j));
-        if (revB) Collections.reverse(nodes.subList(j, k));
+        if (revA) reverse(tour, i, j);
+        if (revB) reverse(tour, j, k);
     }
 
     /**
-     * Returns the distance between the key nodes that will affect the total distance.
+     * Reverses the elements of {@code tour} from {@code from} inclusive to {@code to} exclusive.
      */
-    private double keyNodesDistance(ArrayList<N> keyNodes) {
-        double result = 0.0;
-        for (int i = 0; i < 6; i += 2) {
-            N a = keyNodes.get(i), b = keyNodes.get(i + 1);
-            if (a != null && b != null)
-                result += a.distance(b);
-        }
-        return result;
-    }
-
-    /**
-     * Returns the total distance of the given tour.
-     */
-    private double totalDistance(ArrayList<N> nodes) {
-        double result = 0.0;
-        N previous = initialNode;
-        for (N current : nodes) {
-            if (previous != null)
-                result += previous.distance(current);
-            previous = current;
-        }
-        return result;
+    private static void reverse(int[] tour, int from, int to) {
+        for (to--; from < to; from++, to--) {
+            int a = tour[from];
+            tour[from] = tour[to];
+            tour[to] = a;
+        }
     }
 }
@@ -0,0 +1,589 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.search;
+
+import uk.ac.ed.inf.powergrab.jfr.FlightEvents;
+import uk.ac.ed.inf.powergrab.jfr.TourEvent;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A {@linkplain TspSolver Travelling Salesman Problem solver} which finds a
+ * solution using the <em>Nearest Neighbours</em> heuristic followed by a local
+ * search with the <em>2-opt</em> and <em>Or-opt</em> moves.
+ *
+ * <p>Only moves which connect a node to one of its nearest neighbours are
+ * considered, and nodes whose surroundings have not changed since they were
+ * last examined are skipped (<em>don't look bits</em>). The first improving
+ * move found is applied, so each pass takes close to linear time, unlike the
+ * cubic <em>3-opt</em> scan of {@link IterativeTspSolver}. Finding the nearest
+ * neighbours and the initial tour still takes quadratic time, as nodes only
+ * provide their distances, which {@link #repair} avoids by finding the
+ * neighbours of the nodes it examines only.
+ *
+ * <p>The TSP has to be symmetric, for all nodes {@code a} and {@code b},
+ * {@code a.distance(b) == b.distance(a)}.
+ *
+ * @see TspSolver
+ * @param <N> the type of nodes
+ */
+public class LocalSearchTspSolver<N extends TspSolver.Node<N>> implements TspSolver<N> {
+    /**
+     * The maximum length of the sequences of nodes swapped by a perturbation
+     */
+    private static final int MAX_PERTURBATION = 50;
+    /**
+     * The name of the counter of improving <em>2-opt</em> and <em>Or-opt</em> moves applied
+     */
+    public static final String MOVES = "tsp.localSearchMoves";
+
+    private int neighbours = 8;
+    private int perturbations = 10;
+    private long seed = 0;
+    private N initialNode = null;
+    private Metrics metrics = null;
+
+    /**
+     * Creates a {@code LocalSearchTspSolver} instance.
+     */
+    public LocalSearchTspSolver() {}
+
+    /**
+     * Creates a {@code LocalSearchTspSolver} instance which considers
+     * the given number of nearest neighbours of each node.
+     */
+    public LocalSearchTspSolver(int neighbours) {
+        setNeighbours(neighbours);
+    }
+
+    public int getNeighbours() { return neighbours; }
+
+    /**
+     * Sets the number of nearest neighbours of each node considered by the moves, 8 by default.
+     *
+     * @throws IllegalArgumentException if {@code neighbours} is less than one
+     */
+    public void setNeighbours(int neighbours) {
+        if (neighbours < 1) throw new IllegalArgumentException();
+        this.neighbours = neighbours;
+    }
+
+    public int getPerturbations() { return perturbations; }
+
+    /**
+     * Sets the number of perturbations per node applied after the first local optimum
+     * is reached, 10 by default. Each perturbation swaps two short adjacent sequences
+     * of nodes and repairs the path with local search, keeping the result only if
+     * it is shorter. Zero disables perturbations.
+     *
+     * @throws IllegalArgumentException if {@code perturbations} is negative
+     */
+    public void setPerturbations(int perturbations) {
+        if (perturbations < 0) throw new IllegalArgumentException();
+        this.perturbations = perturbations;
+    }
+
+    public long getSeed() { return seed; }
+
+    /**
+     * Sets the seed of the random choice of perturbations, so that
+     * the same nodes always result in the same tour.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public N getInitialNode() { return initialNode; }
+
+    @Override
+    public void setInitialNode(N initialNode) {
+        this.initialNode = initialNode;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * Sets the registry the moves applied are counted in, or {@code null}
+     * to not count them, which is the default.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * First constructs a solution using the <em>Nearest Neighbours heuristic</em>
+     * and then improves it with <em>2-opt</em> and <em>Or-opt</em> moves until
+     * no improving move is found, followed by the perturbations.
+     *
+     * @see #setInitialNode
+     * @param nodes the nodes to visit, excluding the fixed initial node
+     * @return shortest tour, excluding the fixed initial node
+     */
+    @Override
+    public List<N> solve(Collection<? extends N> nodes) {
+        List<N> all = new ArrayList<>(nodes.size() + 1);
+        if (initialNode != null)
+            all.add(initialNode);
+        all.addAll(nodes);
+        TourEvent event = FlightEvents.AVAILABLE ? new TourEvent() : null;
+        if (event != null)
+            event.begin();
+        Tour tour = new Tour(all, initialNode != null, true);
+        double initialLength = tour.length;
+        tour.improve();
+        tour.perturb(perturbations * all.size(), new Random(seed));
+        if (metrics != null)
+            metrics.add(MOVES, tour.moves);
+        if (event != null)
+            commit(event, tour, initialLength);
+        return tour.toList();
+    }
+
+    /**
+     * Improves a previous {@code tour} with <em>2-opt</em> and <em>Or-opt</em> moves
+     * around the {@code changed} nodes only, such as the nodes next to removed or
+     * inserted nodes. The fixed initial node is always considered changed. No
+     * perturbations are applied, so repairing a tour after small changes takes
+     * a fraction of the time of solving from scratch.
+     *
+     * @see #setInitialNode
+     * @param tour the previous tour, excluding the fixed initial node
+     * @param changed the nodes whose neighbours in the tour have changed
+     * @return repaired tour, excluding the fixed initial node
+     */
+    public List<N> repair(List<? extends N> tour, Collection<? extends N> changed) {
+        List<N> all = new ArrayList<>(tour.size() + 1);
+        if (initialNode != null)
+            all.add(initialNode);
+        all.addAll(tour);
+        TourEvent event = FlightEvents.AVAILABLE ? new TourEvent() : null;
+        if (event != null)
+            event.begin();
+        Tour path = new Tour(all, initialNode != null, false);
+        double initialLength = path.length;
+        if (all.size() >= 3) {
+            Set<N> changedSet = new HashSet<>(changed);
+            for (int a = 0; a < all.size(); a++)
+                if ((a == 0 && initialNode != null) || changedSet.contains(all.get(a)))
+                    path.activate(a);
+            path.optimise();
+        }
+        if (metrics != null)
+            metrics.add(MOVES, path.moves);
+        if (event != null)
+            commit(event, path, initialLength);
+        return path.toList();
+    }
+
+    /**
+     * Emits a {@link TourEvent} of the {@code tour} improved from {@code initialLength}
+     * to Flight Recorder, if it is recording.
+     */
+    private void commit(TourEvent event, Tour tour, double initialLength) {
+        if (!event.shouldCommit())
+            return;
+        event.solver = getClass().getSimpleName();
+        event.nodes = tour.order.length;
+        event.iterations = tour.moves;
+        event.initialLength = initialLength;
+        event.length = tour.length;
+        event.commit();
+    }
+
+    /**
+     * A path visiting all nodes, stored as the order of the node indices
+     * and the position of each node in the order.
+     */
+    private final class Tour {
+        final List<N> nodes;
+        /**
+         * Whether the node at position 0 cannot be moved
+         */
+        final boolean fixedStart;
+        final int[] order, position;
+        /**
+         * The nearest neighbours of each node, closest first, found when first needed
+         */
+        final int[][] candidates;
+        /**
+         * The minimum improvement for a move to be applied, to avoid cycling
+         * between moves because of rounding errors
+         */
+        double epsilon;
+        double length = 0.0;
+        /**
+         * The number of improving moves applied
+         */
+        long moves = 0;
+        /**
+         * The queue of active nodes, a ring buffer holding each node at most once
+         */
+        final int[] active;
+        int activeHead = 0, activeCount = 0;
+        final boolean[] isActive;
+        final int[] segment;
+
+        /**
+         * Creates a path visiting the {@code nodes}, in their order or
+         * in the order of the <em>Nearest Neighbours</em> heuristic.
+         */
+        Tour(List<N> nodes, boolean fixedStart, boolean nearestNeighbours) {
+            this.nodes = nodes;
+            this.fixedStart = fixedStart;
+            int size = nodes.size();
+            order = new int[size];
+            position = new int[size];
+            active = new int[size];
+            isActive = new boolean[size];
+            segment = new int[size];
+            candidates = new int[size][];
+            if (nearestNeighbours) {
+                nearestNeighbourTour();
+            } else {
+                for (int a = 0; a < size; a++)
+                    place(a, a);
+            }
+            for (int i = 1; i < size; i++)
+                length += distance(order[i - 1], order[i]);
+            epsilon = length * 1e-12;
+        }
+
+        /**
+         * Returns the nodes in the order of the path, excluding the fixed initial node.
+         */
+        List<N> toList() {
+            List<N> result = new ArrayList<>(order.length);
+            for (int i = fixedStart ? 1 : 0; i < order.length; i++)
+                result.add(nodes.get(order[i]));
+            return result;
+        }
+
+        double distance(int a, int b) {
+            return nodes.get(a).distance(nodes.get(b));
+        }
+
+        /**
+         * Returns the distance between {@code a} and {@code b},
+         * or zero if either is {@code -1}, which represents the ends of the path.
+         */
+        double edge(int a, int b) {
+            return a < 0 || b < 0 ? 0.0 : distance(a, b);
+        }
+
+        int next(int a) {
+            int i = position[a] + 1;
+            return i < order.length ? order[i] : -1;
+        }
+
+        int previous(int a) {
+            int i = position[a] - 1;
+            return i >= 0 ? order[i] : -1;
+        }
+
+        /**
+         * Returns the nearest neighbours of {@code a}, closest first.
+         */
+        int[] candidates(int a) {
+            int[] result = candidates[a];
+            if (result == null)
+                candidates[a] = result = nearestNeighbours(a, Math.min(neighbours, nodes.size() - 1));
+            return result;
+        }
+
+        /**
+         * Returns the {@code count} nodes closest to {@code a}, closest first.
+         */
+        int[] nearestNeighbours(int a, int count) {
+            int[] result = new int[count];
+            double[] distances = new double[count];
+            int found = 0;
+            for (int b = 0; b < nodes.size(); b++) {
+                if (b == a) continue;
+                double d = distance(a, b);
+                if (found == count && d >= distances[count - 1]) continue;
+                // insertion into the sorted array of the closest nodes found so far
+                int i = found < count ? found++ : count - 1;
+                while (i > 0 && distances[i - 1] > d) {
+                    distances[i] = distances[i - 1];
+                    result[i] = result[i - 1];
+                    i--;
+                }
+                distances[i] = d;
+                result[i] = b;
+            }
+            return result;
+        }
+
+        /**
+         * Constructs the initial path using the <em>Nearest Neighbours</em> heuristic,
+         * starting from the first node.
+         */
+        void nearestNeighbourTour() {
+            int size = nodes.size();
+            if (size == 0) return;
+            boolean[] visited = new boolean[size];
+            int current = 0;
+            visited[0] = true;
+            order[0] = 0;
+            for (int i = 1; i < size; i++) {
+                int best = -1;
+                double bestDistance = Double.POSITIVE_INFINITY;
+                for (int b = 0; b < size; b++) {
+                    if (visited[b]) continue;
+                    double d = distance(current, b);
+                    if (best < 0 || d < bestDistance) {
+                        bestDistance = d;
+                        best = b;
+                    }
+                }
+                visited[best] = true;
+                order[i] = best;
+                current = best;
+            }
+            for (int i = 0; i < size; i++)
+                position[order[i]] = i;
+        }
+
+        void activate(int a) {
+            if (a >= 0 && !isActive[a]) {
+                isActive[a] = true;
+                int i = activeHead + activeCount++;
+                active[i < active.length ? i : i - active.length] = a;
+            }
+        }
+
+        /**
+         * Applies improving moves until none can be found.
+         */
+        void improve() {
+            if (order.length < 3) return;
+            for (int a : order)
+                activate(a);
+            optimise();
+        }
+
+        /**
+         * Applies improving moves until none can be found around the active nodes.
+         */
+        void optimise() {
+            while (activeCount > 0) {
+                int a = active[activeHead];
+                activeHead = activeHead + 1 < active.length ? activeHead + 1 : 0;
+                activeCount--;
+                isActive[a] = false;
+                if (twoOpt(a) || orOpt(a)) {
+                    moves++;
+                    activate(a);
+                }
+            }
+        }
+
+        /**
+         * Tries the <em>2-opt</em> moves which connect {@code a} to one of its
+         * nearest neighbours, applying the first improving one.
+         *
+         * @return {@code true} if a move has been applied
+         */
+        boolean twoOpt(int a) {
+            for (int forward = 0; forward < 2; forward++) {
+                boolean isForward = forward == 0;
+                int na = isForward ? next(a) : previous(a);
+                if (na < 0) continue;
+                double removed = distance(a, na);
+                for (int c : candidates(a)) {
+                    double added = distance(a, c);
+                    if (added >= removed) break; // the rest of the candidates are further away
+                    int nc = isForward ? next(c) : previous(c);
+                    if (c == na || nc == a) continue;
+                    // the new edges are (a, c) and (na, nc)
+                    double delta = added + edge(na, nc) - removed - edge(c, nc);
+                    if (delta >= -epsilon) continue;
+                    int i = position[a], j = position[c];
+                    int first, last;
+                    if (isForward) {
+                        first = Math.min(i, j) + 1;
+                        last = Math.max(i, j);
+                    } else {
+                        first = Math.min(i, j);
+                        last = Math.max(i, j) - 1;
+                    }
+                    if (fixedStart && first == 0) continue;
+                    reverse(first, last);
+                    length += delta;
+                    activate(na);
+                    activate(c);
+                    activate(nc);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reverses the nodes between positions {@code first} and {@code last} inclusive.
+         */
+        void reverse(int first, int last) {
+            for (; first < last; first++, last--) {
+                int a = order[first], b = order[last];
+                order[first] = b;
+                position[b] = first;
+                order[last] = a;
+                position[a] = last;
+            }
+        }
+
+        /**
+         * Tries the <em>Or-opt</em> moves of the sequences of nodes which start or end
+         * at {@code a}, moving them next to one of the nearest neighbours of {@code a}.
+         * The other end of the sequence is one of the nearest neighbours of the node
+         * it will be connected to, so sequences of any length are considered.
+         *
+         * @return {@code true} if a move has been applied
+         */
+        boolean orOpt(int a) {
+            int i = position[a];
+            double longest = Math.max(edge(previous(a), a), edge(a, next(a)));
+            for (int x : candidates(a)) {
+                double added = distance(x, a);
+                if (added >= longest) break; // positive gain criterion
+                for (int side = 0; side < 2; side++) {
+                    // the sequence will be between x and y
+                    boolean xFirst = side == 0;
+                    int y = xFirst ? next(x) : previous(x);
+                    if (y < 0) {
+                        // moving just a to an end of the path,
+                        // longer sequences are covered by 2-opt moves
+                        if (!(fixedStart && !xFirst) && tryMoveSegment(a, a, x, y, xFirst))
+                            return true;
+                        continue;
+                    }
+                    for (int b : candidates(y))
+                        if (tryMoveSegment(a, b, x, y, xFirst))
+                            return true;
+                    if (tryMoveSegment(a, a, x, y, xFirst))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Tries moving the sequence of nodes from {@code a} to {@code b} between the
+         * adjacent nodes {@code x} and {@code y}, so that {@code a} is connected to
+         * {@code x} and {@code b} to {@code y}. {@code y} is {@code -1} when moving
+         * to an end of the path.
+         *
+         * @param xFirst whether {@code x} is before {@code y} in the path
+         * @return {@code true} if the sequence has been moved
+         */
+        boolean tryMoveSegment(int a, int b, int x, int y, boolean xFirst) {
+            int i = position[a], j = position[b];
+            int start = Math.min(i, j), end = Math.max(i, j);
+            if (start < (fixedStart ? 1 : 0) || end - start + 1 == order.length) return false;
+            int px = position[x], py = y < 0 ? -1 : position[y];
+            // x and y have to be outside of the sequence
+            if ((px >= start && px <= end) || (py >= start && py <= end)) return false;
+            int p = start > 0 ? order[start - 1] : -1, n = end + 1 < order.length ? order[end + 1] : -1;
+            int first = order[start], last = order[end];
+            double delta = edge(p, n) + distance(x, a) + edge(b, y)
+                    - edge(p, first) - edge(last, n) - edge(x, y);
+            if (delta >= -epsilon) return false;
+            // after the move the path contains x, a..b, y or y, b..a, x
+            boolean reversed = xFirst != (a == first);
+            moveSegment(start, end, xFirst ? x : y, reversed);
+            length += delta;
+            activate(p);
+            activate(n);
+            activate(x);
+            activate(y);
+            activate(first);
+            activate(last);
+            return true;
+        }
+
+        /**
+         * Moves the sequence of nodes between positions {@code start} and {@code end}
+         * inclusive after node {@code x}, or to the start of the path if {@code x} is
+         * {@code -1}, optionally reversing it.
+         */
+        void moveSegment(int start, int end, int x, boolean reversed) {
+            int count = end - start + 1;
+            for (int k = 0; k < count; k++)
+                segment[k] = order[reversed ? end - k : start + k];
+            int target = x < 0 ? 0 : position[x] + 1;
+            if (target > end) {
+                // shift the nodes between the sequence and the target backwards
+                for (int k = end + 1; k < target; k++)
+                    place(order[k], k - count);
+                target -= count;
+            } else {
+                // shift the nodes between the target and the sequence forwards
+                for (int k = start - 1; k >= target; k--)
+                    place(order[k], k + count);
+            }
+            for (int k = 0; k < count; k++)
+                place(segment[k], target + k);
+        }
+
+        /**
+         * Applies {@code count} random perturbations, each followed by local search,
+         * and keeps the shortest path found.
+         */
+        void perturb(int count, Random random) {
+            int first = fixedStart ? 1 : 0, size = order.length;
+            if (size - first < 3) return;
+            int[] bestOrder = order.clone(), bestPosition = position.clone();
+            double bestLength = length;
+            for (int k = 0; k < count; k++) {
+                // swap the adjacent sequences [i, j) and [j, l)
+                int i = first + random.nextInt(size - first - 1);
+                int j = i + 1 + random.nextInt(Math.min(MAX_PERTURBATION, size - i - 1));
+                int l = j + 1 + random.nextInt(Math.min(MAX_PERTURBATION, size - j));
+                int p = i > 0 ? order[i - 1] : -1, n = l < size ? order[l] : -1;
+                int a = order[i], b = order[j - 1], c = order[j], d = order[l - 1];
+                length += edge(p, c) + distance(d, a) + edge(b, n)
+                        - edge(p, a) - distance(b, c) - edge(d, n);
+                for (int m = 0; m < l - i; m++)
+                    segment[m] = order[i + m];
+                for (int m = j; m < l; m++)
+                    place(segment[m - i], i + m - j);
+                for (int m = i; m < j; m++)
+                    place(segment[m - i], l - j + m);
+                activate(p);
+                activate(a);
+                activate(b);
+                activate(c);
+                activate(d);
+                activate(n);
+                optimise();
+                if (length < bestLength - epsilon) {
+                    bestLength = length;
+                    System.arraycopy(order, 0, bestOrder, 0, size);
+                    System.arraycopy(position, 0, bestPosition, 0, size);
+                } else {
+                    length = bestLength;
+                    System.arraycopy(bestOrder, 0, order, 0, size);
+                    System.arraycopy(bestPosition, 0, position, 0, size);
+                }
+            }
+        }
+
+        void place(int a, int i) {
+            order[i] = a;
+            position[a] = i;
+        }
+    }
+}
@@ -0,0 +1,590 @@
+/*=================================================================
+Copyright 2019 Pavlos Georgiou
+
+This Source Code Form is subject to the terms of the Mozilla Public
+License, v. 2.0. If a copy of the MPL was not distributed with this
+file, You can obtain one at <https://mozilla.org/MPL/2.0/>.
+=================================================================*/
+
+package uk.ac.ed.inf.powergrab.search;
+
+import java.util.*;
+
+/**
+ * The search tree of the memory-bounded mode of {@link HeuristicSearchSolver},
+ * in the style of SMA* (Simplified Memory-bounded A*) from Artificial
+ * Intelligence: A Modern Approach by Russel and Norvig.
+ *
+ * <p>The tree holds at most {@code maxNodes} entries. When it is full, the worst
+ * leaf is forgotten to make room for a new child, and the best of the forgotten
+ * children of an entry is backed up into it, so the entry is expanded again to
+ * regenerate them when it becomes the best entry. The value of an entry is the
+ * best node known to be reachable through it, compared with
+ * {@link Comparable#compareTo}, as nodes have no numeric cost: a new entry is
+ * valued as its node and an expanded entry as its best child. The order of the
+ * nodes need not be monotonic, a child may be better than its parent, so only
+ * the entries of regenerated subtrees are valued no better than the value backed
+ * up into the parent which regenerated them, as those subtrees have already been
+ * explored that far. Otherwise a regenerated subtree would be explored again
+ * from scratch each time.
+ *
+ * <p>A child is not added if an equivalent node at least as good is in the tree,
+ * which also prevents cycles, so the tree serves as the explored set. When the
+ * best of the equivalent entries is forgotten, the next best in the tree takes
+ * its place, so the worse equivalent nodes are still not added. Entries
+ * without any children to explore are dead ends, which SMA* values as infinite.
+ * They are kept as long as there is room, so the nodes they cover are not
+ * explored again, and are the first entries to be forgotten.
+ *
+ * <p>The entries are kept in heaps, a list and a hash table which store their
+ * links in the entries themselves, so no objects are allocated per entry
+ * other than the entry and the list of its children.
+ *
+ * @param <N> the type of nodes
+ */
+final class MemoryBoundedTree<N extends HeuristicSearchSolver.Node<N>> {
+    /**
+     * A node of the search tree
+     */
+    final class Entry {
+        final N node;
+        final Entry parent;
+        final int depth;
+        final long id;
+        /**
+         * Whether the entry is regenerated when its parent is expanded again,
+         * which warm-start entries are not
+         */
+        final boolean regenerable;
+        /**
+         * The best node known to be reachable through this entry
+         */
+        N value;
+        /**
+         * The best value of the forgotten children, or {@code null}
+         */
+        N forgotten = null;
+        /**
+         * The value the entry and its descendants cannot be better than, which
+         * is set in regenerated subtrees, or {@code null}
+         */
+        N floor = null;
+        boolean expanded = false;
+        /**
+         * Whether the entry is expanded and no child is left to explore
+         */
+        boolean dead = false;
+        final List<Entry> children = new ArrayList<>(4);
+        /**
+         * The positions of the entry in {@link #open} and {@link #leaves}, or {@code -1}
+         */
+        int openIndex = -1, leafIndex = -1;
+        /**
+         * Whether the entry is in the list of dead leaves, and its neighbours in it
+         */
+        boolean deadLeaf = false;
+        Entry olderDeadLeaf = null, newerDeadLeaf = null;
+        /**
+         * The neighbours of the entry in the ring of the entries in the tree with
+         * the same equivalence key, which are the entry itself if it is alone
+         */
+        Entry previousSameKey = this, nextSameKey = this;
+
+        Entry(N node, Entry parent, boolean regenerable) {
+            this.node = node;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.id = nextId++;
+            this.regenerable = regenerable;
+            this.value = node;
+        }
+    }
+
+    /**
+     * Orders entries by value, then deeper entries first, then older entries first,
+     * so the first entry is the one to expand and the last the one to forget
+     */
+    private final Comparator<Entry> order = (a, b) -> {
+        int compValue = a.value.compareTo(b.value);
+        if (compValue != 0)
+            return compValue;
+        if (a.depth != b.depth)
+            return Integer.compare(b.depth, a.depth);
+        return Long.compare(a.id, b.id);
+    };
+
+    private final int maxNodes;
+    private long nextId = 0L;
+    /**
+     * The entries with children which have not been generated or were forgotten, best first
+     */
+    private final EntryHeap open = new EntryHeap(order, false);
+    /**
+     * The entries without children in the tree other than the root, which are not dead, worst first
+     */
+    private final EntryHeap leaves = new EntryHeap(order.reversed(), true);
+    /**
+     * The oldest and newest dead entries without children in the tree
+     */
+    private Entry oldestDeadLeaf = null, newestDeadLeaf = null;
+    /**
+     * The best entry of each equivalence key
+     */
+    private final ExploredTable explored = new ExploredTable();
+    private final Entry root;
+    private int size = 0, peakSize = 0;
+    private long forgottenCount = 0L;
+
+    /**
+     * Creates a tree holding at most {@code maxNodes} entries with {@code first} at its root.
+     */
+    MemoryBoundedTree(N first, int maxNodes) {
+        this.maxNodes = maxNodes;
+        root = new Entry(first, null, true);
+        insert(root);
+    }
+
+    /**
+     * Returns the number of entries in the tree.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the largest number of entries the tree has held.
+     */
+    int peakSize() {
+        return peakSize;
+    }
+
+    /**
+     * Returns the number of entries forgotten to make room for others.
+     */
+    long forgottenCount() {
+        return forgottenCount;
+    }
+
+    /**
+     * Returns the entry to expand next, or {@code null} if the search space is exhausted.
+     */
+    Entry best() {
+        return open.first();
+    }
+
+    /**
+     * Returns {@code true} if {@code entry} is at the maximum depth, where it cannot
+     * have children as a longer path would not fit in the tree. The search takes
+     * such an entry as the best partial solution when it is the best entry.
+     */
+    boolean atHorizon(Entry entry) {
+        return entry.depth >= maxNodes - 1;
+    }
+
+    /**
+     * Adds {@code node} as a child of the root which is not regenerated
+     * once forgotten, if there is room for it.
+     */
+    void addWarmStart(N node) {
+        if (size < maxNodes && !isExplored(node)) {
+            Entry entry = new Entry(node, root, false);
+            root.children.add(entry);
+            insert(entry);
+            update(root);
+        }
+    }
+
+    /**
+     * Generates the children of {@code entry} which are not in the tree, forgetting
+     * the worst leaves to make room for them. The best child is always added if the
+     * entry has no other children to explore, so the search goes deeper, the others
+     * only if they are better than the worst leaf.
+     */
+    void expand(Entry entry) {
+        open.remove(entry);
+        leaves.remove(entry);
+        // the forgotten children are regenerated, or forgotten again if there is no room
+        N floor = entry.forgotten != null ? entry.value : entry.floor;
+        entry.forgotten = null;
+        entry.expanded = true;
+        List<Entry> children = new ArrayList<>();
+        if (!atHorizon(entry)) {
+            for (N child : entry.node.childNodes()) {
+                if (isChild(entry, child) || isExplored(child))
+                    continue;
+                Entry added = new Entry(child, entry, true);
+                if (floor != null) {
+                    added.floor = floor;
+                    added.value = worse(child, floor);
+                }
+                children.add(added);
+            }
+            children.sort(order);
+        }
+        boolean hasLiveChild = false;
+        for (Entry child : entry.children)
+            hasLiveChild |= !child.dead;
+        for (int i = 0; i < children.size(); i++) {
+            Entry child = children.get(i);
+            if (size >= maxNodes) {
+                if (oldestDeadLeaf != null) {
+                    forget(oldestDeadLeaf);
+                } else {
+                    Entry worst = leaves.first();
+                    if (worst == null || (hasLiveChild && order.compare(child, worst) > 0)) {
+                        // the remaining children are no better
+                        entry.forgotten = child.value;
+                        forgottenCount += children.size() - i;
+                        break;
+                    }
+                    forget(worst);
+                }
+            }
+            entry.children.add(child);
+            insert(child);
+            hasLiveChild = true;
+        }
+        update(entry);
+    }
+
+    /**
+     * Returns {@code true} if {@code entry} has a child equivalent to {@code node}.
+     */
+    private boolean isChild(Entry entry, N node) {
+        for (Entry child : entry.children)
+            if (child.node.equivalent(node))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if an entry equivalent to {@code node} and at least as good is in the tree.
+     */
+    private boolean isExplored(N node) {
+        Entry entry = explored.get(node.equivalenceKey());
+        return entry != null && entry.node.equivalent(node) && entry.node.compareTo(node) <= 0;
+    }
+
+    private void insert(Entry entry) {
+        size++;
+        if (size > peakSize)
+            peakSize = size;
+        open.add(entry);
+        if (entry.parent != null)
+            leaves.add(entry);
+        long key = entry.node.equivalenceKey();
+        Entry equivalent = explored.get(key);
+        if (equivalent != null) {
+            entry.nextSameKey = equivalent.nextSameKey;
+            entry.previousSameKey = equivalent;
+            equivalent.nextSameKey.previousSameKey = entry;
+            equivalent.nextSameKey = entry;
+        }
+        if (equivalent == null || entry.node.compareTo(equivalent.node) < 0)
+            explored.put(key, entry);
+    }
+
+    /**
+     * Removes the leaf {@code entry} from the tree, backing up its value into its
+     * parent unless it is a dead end or cannot be regenerated.
+     */
+    private void forget(Entry entry) {
+        size--;
+        forgottenCount++;
+        open.remove(entry);
+        leaves.remove(entry);
+        removeDeadLeaf(entry);
+        unregister(entry);
+        Entry parent = entry.parent;
+        parent.children.remove(entry);
+        if (!entry.dead && entry.regenerable
+                && (parent.forgotten == null || entry.value.compareTo(parent.forgotten) < 0))
+            parent.forgotten = entry.value;
+        update(parent);
+    }
+
+    /**
+     * Removes {@code entry} from the entries with its equivalence key, replacing
+     * it with the best of the others if it is the best.
+     */
+    private void unregister(Entry entry) {
+        long key = entry.node.equivalenceKey();
+        Entry next = entry.nextSameKey;
+        if (explored.get(key) == entry) {
+            if (next == entry) {
+                explored.remove(key);
+            } else {
+                Entry best = next;
+                for (Entry other = next.nextSameKey; other != entry; other = other.nextSameKey)
+                    if (other.node.compareTo(best.node) < 0)
+                        best = other;
+                explored.put(key, best);
+            }
+        }
+        entry.previousSameKey.nextSameKey = next;
+        next.previousSameKey = entry.previousSameKey;
+        entry.previousSameKey = entry.nextSameKey = entry;
+    }
+
+    /**
+     * Updates the value of the {@code entry} to the best of its live children and
+     * forgotten children and the sets it belongs to, and then of its ancestors
+     * while their values change. An expanded entry without any of these is dead.
+     */
+    private void update(Entry entry) {
+        while (entry != null) {
+            open.remove(entry);
+            leaves.remove(entry);
+            removeDeadLeaf(entry);
+            N value = entry.value;
+            boolean dead = entry.dead;
+            if (entry.expanded) {
+                N best = entry.forgotten;
+                for (Entry child : entry.children)
+                    if (!child.dead && (best == null || child.value.compareTo(best) < 0))
+                        best = child.value;
+                entry.dead = best == null;
+                if (best != null)
+                    entry.value = best;
+            }
+            if (!entry.dead && (!entry.expanded || entry.forgotten != null))
+                open.add(entry);
+            if (entry.children.isEmpty() && entry.parent != null) {
+                if (entry.dead)
+                    addDeadLeaf(entry);
+                else
+                    leaves.add(entry);
+            }
+            if (entry.value == value && entry.dead == dead)
+                return;
+            entry = entry.parent;
+        }
+    }
+
+    /**
+     * Appends {@code entry} to the list of dead leaves as the newest.
+     */
+    private void addDeadLeaf(Entry entry) {
+        entry.deadLeaf = true;
+        entry.olderDeadLeaf = newestDeadLeaf;
+        entry.newerDeadLeaf = null;
+        if (newestDeadLeaf != null)
+            newestDeadLeaf.newerDeadLeaf = entry;
+        else
+            oldestDeadLeaf = entry;
+        newestDeadLeaf = entry;
+    }
+
+    /**
+     * Removes {@code entry} from the list of dead leaves if it is in it.
+     */
+    private void removeDeadLeaf(Entry entry) {
+        if (!entry.deadLeaf)
+            return;
+        if (entry.olderDeadLeaf != null)
+            entry.olderDeadLeaf.newerDeadLeaf = entry.newerDeadLeaf;
+        else
+            oldestDeadLeaf = entry.newerDeadLeaf;
+        if (entry.newerDeadLeaf != null)
+            entry.newerDeadLeaf.olderDeadLeaf = entry.olderDeadLeaf;
+        else
+            newestDeadLeaf = entry.olderDeadLeaf;
+        entry.deadLeaf = false;
+        entry.olderDeadLeaf = entry.newerDeadLeaf = null;
+    }
+
+    private static <N extends Comparable<N>> N worse(N a, N b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    /**
+     * A binary heap of entries, least first in the given order, which stores the
+     * position of each entry in the entry so that it can be removed without a search
+     */
+    private final class EntryHeap {
+        private final Comparator<Entry> comparator;
+        /**
+         * Whether the positions are stored in {@link Entry#leafIndex} rather
+         * than in {@link Entry#openIndex}
+         */
+        private final boolean leaves;
+        private Object[] heap = new Object[16];
+        private int size = 0;
+
+        EntryHeap(Comparator<Entry> comparator, boolean leaves) {
+            this.comparator = comparator;
+            this.leaves = leaves;
+        }
+
+        /**
+         * Returns the least entry, or {@code null} if the heap is empty.
+         */
+        Entry first() {
+            return size == 0 ? null : get(0);
+        }
+
+        /**
+         * Adds {@code entry} if it is not in the heap.
+         */
+        void add(Entry entry) {
+            if (index(entry) >= 0)
+                return;
+            if (size == heap.length)
+                heap = Arrays.copyOf(heap, size * 2);
+            siftUp(entry, size++);
+        }
+
+        /**
+         * Removes {@code entry} if it is in the heap.
+         */
+        void remove(Entry entry) {
+            int i = index(entry);
+            if (i < 0)
+                return;
+            setIndex(entry, -1);
+            Entry last = get(--size);
+            heap[size] = null;
+            if (last != entry) {
+                siftDown(last, i);
+                if (get(i) == last)
+                    siftUp(last, i);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry get(int i) {
+            return (Entry) heap[i];
+        }
+
+        private int index(Entry entry) {
+            return leaves ? entry.leafIndex : entry.openIndex;
+        }
+
+        private void set(int i, Entry entry) {
+            heap[i] = entry;
+            if (leaves)
+                entry.leafIndex = i;
+            else
+                entry.openIndex = i;
+        }
+
+        private void setIndex(Entry entry, int i) {
+            if (leaves)
+                entry.leafIndex = i;
+            else
+                entry.openIndex = i;
+        }
+
+        private void siftUp(Entry entry, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                Entry above = get(parent);
+                if (comparator.compare(entry, above) >= 0)
+                    break;
+                set(i, above);
+                i = parent;
+            }
+            set(i, entry);
+        }
+
+        private void siftDown(Entry entry, int i) {
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                Entry below = get(child);
+                if (child + 1 < size && comparator.compare(get(child + 1), below) < 0)
+                    below = get(++child);
+                if (comparator.compare(entry, below) <= 0)
+                    break;
+                set(i, below);
+                i = child;
+            }
+            set(i, entry);
+        }
+    }
+
+    /**
+     * A hash table of entries by equivalence key with open addressing, storing
+     * the keys in an array, so that no objects are allocated per entry
+     */
+    private final class ExploredTable {
+        private long[] keys = new long[16];
+        private Object[] entries = new Object[16];
+        private int size = 0;
+
+        private int slot(long key) {
+            int hash = Long.hashCode(key) * 0x9e3779b9;
+            return (hash ^ (hash >>> 16)) & (keys.length - 1);
+        }
+
+        /**
+         * Returns the entry of {@code key}, or {@code null}.
+         */
+        @SuppressWarnings("unchecked")
+        Entry get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key); entries[i] != null; i = (i + 1) & mask)
+                if (keys[i] == key)
+                    return (Entry) entries[i];
+            return null;
+        }
+
+        /**
+         * Sets the entry of {@code key} to {@code entry}.
+         */
+        void put(long key, Entry entry) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            for (; entries[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    entries[i] = entry;
+                    return;
+                }
+            }
+            keys[i] = key;
+            entries[i] = entry;
+            // at most half full, so that the clusters stay short
+            if (++size * 2 > keys.length)
+                resize();
+        }
+
+        /**
+         * Removes the entry of {@code key} if there is one.
+         */
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int gap = slot(key);
+            while (entries[gap] != null && keys[gap] != key)
+                gap = (gap + 1) & mask;
+            if (entries[gap] == null)
+                return;
+            // the following entries of the cluster which would not be found past the gap fill it
+            for (int i = (gap + 1) & mask; entries[i] != null; i = (i + 1) & mask) {
+                if (((i - slot(keys[i])) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    entries[gap] = entries[i];
+                    gap = i;
+                }
+            }
+            entries[gap] = null;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldEntries = entries;
+            keys = new long[oldKeys.length * 2];
+            entries = new Object[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldEntries[j] == null)
+                    continue;
+                int i = slot(oldKeys[j]);
+                while (entries[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                entries[i] = oldEntries[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.paulgeorgiou.collections;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HeapPriorityDequeTest {
+    /**
+     * An element with a priority, compared by priority only, so that
+     * the order of elements with equal priority can be checked.
+     */
+    private static class Element implements Comparable<Element> {
+        final int priority;
+
+        Element(int priority) { this.priority = priority; }
+
+        @Override
+        public int compareTo(Element o) {
+            return Integer.compare(priority, o.priority);
+        }
+    }
+
+    private static void assertSameElements(Iterator<Element> expected, Iterator<Element> actual) {
+        while (expected.hasNext()) {
+            assertTrue(actual.hasNext());
+            assertSame(expected.next(), actual.next());
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    /**
+     * Applies the same random operations to a {@code HeapPriorityDeque} and a
+     * {@code TreePriorityDeque}, checking they always contain the same elements in the same order.
+     */
+    private static void assertSameAsTree(Random random, int operations, int priorities, int maxSize) {
+        HeapPriorityDeque<Element> heap = new HeapPriorityDeque<>();
+        TreePriorityDeque<Element> tree = new TreePriorityDeque<>();
+        heap.setMaxSize(maxSize);
+        tree.setMaxSize(maxSize);
+        for (int i = 0; i < operations; i++) {
+            Element element = new Element(random.nextInt(priorities));
+            switch (random.nextInt(10)) {
+                case 0: case 1: case 2:
+                    heap.addLast(element);
+                    tree.addLast(element);
+                    break;
+                case 3:
+                    heap.addFirst(element);
+                    tree.addFirst(element);
+                    break;
+                case 4:
+                    assertSame(tree.pollFirst(), heap.pollFirst());
+                    break;
+                case 5:
+                    assertSame(tree.pollLast(), heap.pollLast());
+                    break;
+                case 6:
+                    assertEquals(tree.contains(element), heap.contains(element));
+                    assertEquals(tree.removeFirstOccurrence(element), heap.removeFirstOccurrence(element));
+                    break;
+                case 7:
+                    assertEquals(tree.removeLastOccurrence(element), heap.removeLastOccurrence(element));
+                    break;
+                case 8:
+                    if (tree.isEmpty()) {
+                        assertNull(heap.peekFirst());
+                        assertNull(heap.peekLast());
+                        break;
+                    }
+                    assertSame(tree.peekFirst(), heap.peekFirst());
+                    assertSame(tree.peekLast(), heap.peekLast());
+                    break;
+                default:
+                    int size = random.nextInt(maxSize + 1);
+                    heap.trim(size);
+                    tree.trim(size);
+            }
+            assertEquals(tree.size(), heap.size());
+        }
+        assertSameElements(tree.iterator(), heap.iterator());
+        assertSameElements(tree.descendingIterator(), heap.descendingIterator());
+        while (!tree.isEmpty())
+            assertSame(tree.removeFirst(), heap.removeFirst());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testSameAsTreeUnbounded() {
+        assertSameAsTree(new Random(1), 20000, 50, Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void testSameAsTreeBounded() {
+        Random random = new Random(2);
+        for (int maxSize : new int[] { 0, 1, 2, 3, 7, 64 })
+            assertSameAsTree(random, 5000, 20, maxSize);
+    }
+
+    @Test
+    public void testTiesInInsertionOrder() {
+        HeapPriorityDeque<Element> deque = new HeapPriorityDeque<>();
+        Element a = new Element(1), b = new Element(1), c = new Element(1), d = new Element(0);
+        deque.addLast(a);
+        deque.addLast(b);
+        deque.addFirst(c);
+        deque.addLast(d);
+        assertSame(d, deque.getFirst());
+        assertSame(b, deque.getLast());
+        assertSame(d, deque.removeFirst());
+        assertSame(c, deque.removeFirst());
+        assertSame(a, deque.removeFirst());
+        assertSame(b, deque.removeFirst());
+        assertNull(deque.pollFirst());
+    }
+
+    @Test
+    public void testComparatorAndCopies() {
+        HeapPriorityDeque<Integer> deque = new HeapPriorityDeque<>(Comparator.reverseOrder());
+        deque.addAll(Arrays.asList(3, 1, 4, 1, 5, 9, 2, 6));
+        deque.setMaxSize(5);
+        assertEquals(Arrays.asList(9, 6, 5, 4, 3), new ArrayList<>(deque));
+        @SuppressWarnings("unchecked")
+        HeapPriorityDeque<Integer> clone = (HeapPriorityDeque<Integer>) deque.clone();
+        assertEquals(9, (int) clone.removeFirst());
+        assertEquals(5, deque.size());
+        assertEquals(Arrays.asList(6, 5, 4, 3), new ArrayList<>(new HeapPriorityDeque<>(clone)));
+        assertEquals(Arrays.asList(3, 4, 5, 6, 9), new ArrayList<>(new HeapPriorityDeque<>(deque, null)));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRemoveFromEmpty() {
+        new HeapPriorityDeque<Integer>().removeFirst();
+    }
+}
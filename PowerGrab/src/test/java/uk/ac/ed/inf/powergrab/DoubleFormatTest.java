@@ -0,0 +1,50 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DoubleFormatTest {
+    @Test
+    public void testNotation() {
+        assertEquals("0", DoubleFormat.toString(0.0));
+        assertEquals("-0", DoubleFormat.toString(-0.0));
+        assertEquals("1", DoubleFormat.toString(1.0));
+        assertEquals("100", DoubleFormat.toString(100.0));
+        assertEquals("9999999", DoubleFormat.toString(9999999.0));
+        assertEquals("1.0E7", DoubleFormat.toString(1e7));
+        assertEquals("0.001", DoubleFormat.toString(0.001));
+        assertEquals("1.0E-4", DoubleFormat.toString(1e-4));
+        assertEquals("55.944425", DoubleFormat.toString(55.944425));
+        assertEquals("-3.188396", DoubleFormat.toString(-3.188396));
+        assertEquals("4.9E-324", DoubleFormat.toString(Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", DoubleFormat.toString(Double.MAX_VALUE));
+    }
+
+    @Test
+    public void testShortest() {
+        // Double.toString gives more digits than needed for these
+        assertEquals("0.002", DoubleFormat.toString(2e-3));
+        assertEquals("1.0E23", DoubleFormat.toString(1e23));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(5678);
+        for (int i = 0; i < 1000000; i++) {
+            double value = i % 2 == 0 ? Double.longBitsToDouble(random.nextLong())
+                    : 55.942617 + random.nextDouble() * 0.003;
+            if (Double.isNaN(value) || Double.isInfinite(value)) continue;
+            String text = DoubleFormat.toString(value);
+            assertEquals(text, value, Double.parseDouble(text), 0.0);
+            assertTrue(text, text.length() <= Double.toString(value).length());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaN() {
+        DoubleFormat.toString(Double.NaN);
+    }
+}
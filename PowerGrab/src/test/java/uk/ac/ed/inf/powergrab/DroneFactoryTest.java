@@ -0,0 +1,56 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class DroneFactoryTest {
+    private static final DroneSettings settings =
+            new DroneSettings(new Position(55.944425, -3.188396), 0.0, 250.0, 250);
+
+    private static GameMap map() {
+        return TestMaps.random(new Random(1), 30);
+    }
+
+    @Test
+    public void testForName() {
+        assertTrue(DroneFactory.forName("stateless") instanceof StatelessDroneFactory);
+        assertTrue(DroneFactory.forName("stateful") instanceof StatefulDroneFactory);
+        assertNull(DroneFactory.forName("unknown"));
+        List<String> names = DroneFactory.names();
+        assertTrue(names.contains("stateless"));
+        assertTrue(names.contains("stateful"));
+    }
+
+    @Test
+    public void testPlanningBudget() {
+        DroneSettings budgeted = new DroneSettings(settings.initialPosition, 0.0, 250.0, 250);
+        budgeted.setPlanningBudget(5, TimeUnit.MILLISECONDS);
+        DroneFactory stateful = new StatefulDroneFactory();
+        assertEquals(Long.MAX_VALUE, stateful.getPlanningBudget(settings, TimeUnit.MILLISECONDS));
+        assertEquals(5L, stateful.getPlanningBudget(budgeted, TimeUnit.MILLISECONDS));
+        assertEquals(-1L, new StatelessDroneFactory().getPlanningBudget(budgeted, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSharedTourSameAsPlanned() {
+        GameMap map = map();
+        Function<GameMap, Drone> drones = new StatefulDroneFactory().prepare(map, settings);
+        for (int i = 0; i < 2; i++) {
+            Drone prepared = drones.apply(new GameMap(map));
+            Drone planned = new StatefulDrone(settings.initialPosition, new GameMap(map), 0.0, 250.0, 250);
+            List<Simulation.Move> expected = new Simulation(planned, 250).runSimulation();
+            List<Simulation.Move> moves = new Simulation(prepared, 250).runSimulation();
+            assertEquals(expected.size(), moves.size());
+            for (int j = 0; j < moves.size(); j++)
+                assertEquals(expected.get(j).toString(), moves.get(j).toString());
+        }
+        // the map given to the factory is not changed
+        assertEquals(map().stations.get(0).getCoins(), map.stations.get(0).getCoins(), 0.0);
+    }
+}
@@ -0,0 +1,107 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GameMapTest {
+    /**
+     * The station found by scanning all stations, as {@code closeStation} used to.
+     */
+    private static Station closeStationScan(GameMap map, Position position) {
+        Station nearest = map.nearestStation(position);
+        if (nearest != null && nearest.position.distance(position) < GameRules.closeDistance)
+            return nearest;
+        return null;
+    }
+
+    private static void assertSameAsScan(GameMap map, Random random) {
+        Rectangle area = GameRules.playArea;
+        for (int i = 0; i < 10000; i++) {
+            Position position = new Position(
+                    area.bottomRight.latitude - 0.001 + random.nextDouble() * 0.006,
+                    area.topLeft.longitude - 0.001 + random.nextDouble() * 0.010);
+            assertSame(closeStationScan(map, position), map.closeStation(position));
+        }
+        for (Station station : map.stations)
+            assertSame(closeStationScan(map, station.position), map.closeStation(station.position));
+    }
+
+    @Test
+    public void testCloseStationSmallMap() {
+        Random random = new Random(1);
+        assertSameAsScan(TestMaps.random(random, 50, 1.0, 1.0), random);
+    }
+
+    @Test
+    public void testCloseStationLargeMap() {
+        Random random = new Random(2);
+        assertSameAsScan(TestMaps.random(random, 5000, 1.0, 1.0), random);
+    }
+
+    @Test
+    public void testCloseStationSpreadOutMap() {
+        Random random = new Random(3);
+        assertSameAsScan(TestMaps.map(TestMaps.randomPositions(random, 100, 1000.0), 1.0, 1.0), random);
+    }
+
+    @Test
+    public void testCloseStationCopiedMap() {
+        Random random = new Random(4);
+        GameMap map = TestMaps.random(random, 50, 1.0, 1.0);
+        GameMap copy = new GameMap(map);
+        for (int i = 0; i < map.stations.size(); i++)
+            assertSame(copy.stations.get(i), copy.closeStation(map.stations.get(i).position));
+    }
+
+    @Test
+    public void testCloseStationEmptyMap() {
+        assertNull(new GameMap(Collections.emptyList()).closeStation(new Position(55.944425, -3.188396)));
+    }
+
+    @Test
+    public void testCopiesShareLayout() {
+        Position start = new Position(55.944425, -3.188396);
+        List<Station> stations = new ArrayList<>();
+        stations.add(new Station("a", start.nextPosition(Direction.N), 20.0, -30.0));
+        GameMap map = new GameMap(stations);
+        GameMap copy = new GameMap(map);
+        assertSame(map.layout, copy.layout);
+        Drone drone = new StatelessDrone(start, copy, 5.0, 10.0);
+        drone.move(Direction.N);
+        // the drone only changes the resources of its own map
+        assertEquals(20.0, map.getCoins(0), 0.0);
+        assertEquals(-30.0, map.getPower(0), 0.0);
+        assertEquals(0.0, copy.getCoins(0), 0.0);
+        assertEquals(-30.0 + 10.0 - GameRules.powerConsumedPerMove, copy.getPower(0), 1e-12);
+        assertEquals(copy.getPower(0), copy.stations.get(0).getPower(), 0.0);
+        assertEquals(25.0, drone.getCoins(), 0.0);
+        assertEquals(0.0, drone.getPower(), 0.0);
+        // a map of the layout starts with the initial resources
+        assertEquals(20.0, new GameMap(copy.layout).getCoins(0), 0.0);
+    }
+
+    @Test
+    public void testConnectSameAsStation() {
+        Random random = new Random(5);
+        Position start = new Position(55.944425, -3.188396);
+        for (int i = 0; i < 100; i++) {
+            double coins = random.nextDouble() * 100.0 - 50.0, power = random.nextDouble() * 100.0 - 50.0;
+            Station station = new Station("a", start, coins, power);
+            GameMap map = new GameMap(Collections.singletonList(station));
+            Drone first = new StatelessDrone(start, map, random.nextDouble() * 50.0, random.nextDouble() * 50.0);
+            Drone second = new StatelessDrone(start, map, first.getCoins(), first.getPower());
+            station.connect(first);
+            map.connect(0, second);
+            assertEquals(first.getCoins(), second.getCoins(), 0.0);
+            assertEquals(first.getPower(), second.getPower(), 0.0);
+            assertEquals(station.getCoins(), map.stations.get(0).getCoins(), 0.0);
+            assertEquals(station.getPower(), map.stations.get(0).getPower(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static uk.ac.ed.inf.powergrab.TestMaps.assertSameMap;
+
+public class GeoJsonReaderTest {
+    private static GameMap read(String json) throws IOException {
+        return new GeoJsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).readMap();
+    }
+
+    @Test
+    public void testSameAsGeoJson() throws IOException {
+        Path file = Paths.get("maps", "2013", "01", "01", "powergrabmap.geojson");
+        assertSameMap(new GeoJson(file).getMap(), GeoJsonReader.readMap(file));
+    }
+
+    @Test
+    public void testStringsAndOrdering() throws IOException {
+        String json = "{\"type\":\"FeatureCollection\",\"extra\":[{\"a\":[1,2,{}]},null,true,-1.5e-3],"
+                + "\"features\":[{\"geometry\":{\"coordinates\":[-3.19,55.944,0],\"type\":\"Point\"},"
+                + "\"properties\":{\"power\":\"-2.5\",\"id\":\"a\\\"\\u00e9\\ud83d\\ude00\",\"coins\":1E2,"
+                + "\"marker-symbol\":\"light house\"},\"type\":\"Feature\"},"
+                + "{\"properties\":{\"id\":\"b\",\"coins\":-7,\"power\":0},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-3.185,55.943]}}]}";
+        assertSameMap(new GeoJson(json).getMap(), read(json));
+    }
+
+    @Test
+    public void testEmptyFeatures() throws IOException {
+        assertEquals(0, read("{ \"features\" : [ ] }").stations.size());
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMissingFeatures() throws IOException {
+        read("{\"type\":\"FeatureCollection\"}");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testIncompleteFeature() throws IOException {
+        read("{\"features\":[{\"properties\":{\"id\":\"a\",\"coins\":1},"
+                + "\"geometry\":{\"coordinates\":[-3.19,55.944]}}]}");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testTruncated() throws IOException {
+        read("{\"features\":[{\"properties\":{\"id\":\"a");
+    }
+
+    @Test
+    public void testTrailingWhitespace() throws IOException {
+        assertEquals(0, read("{\"features\":[]} \r\n\t").stations.size());
+    }
+
+    @Test(expected = JSONException.class)
+    public void testTrailingContent() throws IOException {
+        read("{\"features\":[]}{\"features\":[]}");
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        String[] numbers = { "0", "-0", "-0.0", "1", "-7", "55.944425", "-3.188396", "0.1", "1E2", "-1.5e-3",
+                "2.5E+10", "123456789012345678", "1234567890123456789", "12345678901234567890",
+                "9007199254740993", "0.000000000000000000000001", "1e22", "1e23", "4.9e-324", "1e400",
+                "1.7976931348623157e308", "00012.50", ".5", "5.", "55.94442584171284", "-3.1919063473957724" };
+        for (String number : numbers) {
+            GameMap map = read("{\"features\":[{\"properties\":{\"id\":\"a\",\"coins\":" + number
+                    + ",\"power\":\"" + number + "\"},\"geometry\":{\"coordinates\":[-3.19,55.944]}}]}");
+            long expected = Double.doubleToLongBits(Double.parseDouble(number));
+            Station station = map.stations.get(0);
+            assertEquals(number, expected, Double.doubleToLongBits(station.getCoins()));
+            assertEquals(number, expected, Double.doubleToLongBits(station.getPower()));
+        }
+    }
+
+    @Test(expected = JSONException.class)
+    public void testNotANumber() throws IOException {
+        read("{\"features\":[{\"properties\":{\"id\":\"a\",\"coins\":1.2.3,\"power\":0},"
+                + "\"geometry\":{\"coordinates\":[-3.19,55.944]}}]}");
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static uk.ac.ed.inf.powergrab.TestMaps.assertSameMap;
+
+public class MapCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path copyMap() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("powergrabmap.geojson");
+        Files.copy(Paths.get("maps", "2013", "01", "01", "powergrabmap.geojson"), file);
+        return file;
+    }
+
+    @Test
+    public void testCacheCreatedAndRead() throws IOException {
+        Path file = copyMap();
+        GameMap expected = GeoJsonReader.readMap(file);
+        assertSameMap(expected, MapCache.load(file));
+        Path cache = MapCache.cacheFile(file);
+        assertTrue(Files.isRegularFile(cache));
+        long size = Files.size(file), modified = Files.getLastModifiedTime(file).toMillis();
+        assertSameMap(expected, MapCache.read(cache, size, modified));
+        assertSameMap(expected, MapCache.load(file));
+    }
+
+    @Test
+    public void testStaleCacheIgnored() throws IOException {
+        Path file = copyMap();
+        MapCache.load(file);
+        Path cache = MapCache.cacheFile(file);
+        long size = Files.size(file), modified = Files.getLastModifiedTime(file).toMillis();
+        assertNull(MapCache.read(cache, size, modified + 1000));
+        assertNull(MapCache.read(cache, size + 1, modified));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified + 1000));
+        assertSameMap(GeoJsonReader.readMap(file), MapCache.load(file));
+        assertNotNull(MapCache.read(cache, size, modified + 1000));
+    }
+
+    @Test
+    public void testCorruptCacheIgnored() throws IOException {
+        Path file = copyMap();
+        MapCache.load(file);
+        Path cache = MapCache.cacheFile(file);
+        byte[] bytes = Files.readAllBytes(cache);
+        Files.write(cache, Arrays.copyOf(bytes, bytes.length / 2));
+        long size = Files.size(file), modified = Files.getLastModifiedTime(file).toMillis();
+        assertNull(MapCache.read(cache, size, modified));
+        assertSameMap(GeoJsonReader.readMap(file), MapCache.load(file));
+    }
+}
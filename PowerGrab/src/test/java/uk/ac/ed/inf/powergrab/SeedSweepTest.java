@@ -0,0 +1,62 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SeedSweepTest {
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    @Test
+    public void testSameAsSingleRuns() throws InterruptedException {
+        GameMap map = TestMaps.random(new Random(1), 50);
+        SeedSweep sweep = new SeedSweep(map, m -> new StatelessDrone(start, m, 0.0, 250.0), 250);
+        double[] scores = sweep.run(-5, 20, null);
+        assertEquals(26, scores.length);
+        double total = 0.0;
+        for (Station station : map.stations)
+            if (station.getCoins() > 0.0) total += station.getCoins();
+        for (int i = 0; i < scores.length; i++) {
+            Drone drone = new StatelessDrone(start, new GameMap(map), 0.0, 250.0);
+            drone.random.setSeed(SeedSweep.droneSeed(-5 + i));
+            new Simulation(drone, 250).runSimulation();
+            assertEquals(drone.getCoins() / total, scores[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testThreadsAndOrder() throws InterruptedException {
+        GameMap map = TestMaps.random(new Random(2), 50);
+        SeedSweep sweep = new SeedSweep(map, m -> new StatelessDrone(start, m, 0.0, 250.0), 250);
+        double[] expected = sweep.run(100, 5099, null);
+        sweep.setThreads(3);
+        List<Long> seeds = new ArrayList<>();
+        double[] scores = sweep.run(100, 5099, (seed, score) -> {
+            assertEquals(expected[(int) (seed - 100)], score, 0.0);
+            seeds.add(seed);
+        });
+        assertArrayEquals(expected, scores, 0.0);
+        for (int i = 0; i < seeds.size(); i++)
+            assertEquals(100L + i, (long) seeds.get(i));
+        assertEquals(5000, seeds.size());
+    }
+
+    @Test
+    public void testPercentile() {
+        double[] scores = { 0.5, 0.1, 0.4, 0.2, 0.3 };
+        assertEquals(0.3, SeedSweep.percentile(scores, 50.0), 0.0);
+        assertEquals(0.5, SeedSweep.percentile(scores, 95.0), 0.0);
+        assertEquals(0.5, SeedSweep.percentile(scores, 100.0), 0.0);
+        assertEquals(0.1, SeedSweep.percentile(scores, 1.0), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyRange() throws InterruptedException {
+        new SeedSweep(new GameMap(Collections.emptyList()), m -> new StatelessDrone(start, m, 0.0, 250.0), 250).run(2, 1, null);
+    }
+}
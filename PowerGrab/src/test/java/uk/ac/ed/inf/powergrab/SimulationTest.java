@@ -0,0 +1,76 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimulationTest {
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    private static Drone drone(GeoJson geoJson) {
+        Drone drone = new StatelessDrone(start, geoJson.getMap(), 0.0, 250.0);
+        drone.random.setSeed(5678);
+        return drone;
+    }
+
+    @Test
+    public void testWritersSameAsMoves() throws IOException {
+        Path file = Paths.get("maps", "2013", "01", "01", "powergrabmap.geojson");
+        GeoJson expected = new GeoJson(file), streamed = new GeoJson(file);
+        List<Simulation.Move> moves = new Simulation(drone(expected), 250).runSimulation();
+        expected.addMoves(moves);
+        StringBuilder log = new StringBuilder();
+        for (Simulation.Move move : moves) {
+            if (log.length() > 0) log.append(System.lineSeparator());
+            log.append(move);
+        }
+
+        StringWriter logOutput = new StringWriter(), mapOutput = new StringWriter();
+        int count;
+        try (MoveLogWriter logWriter = new MoveLogWriter(logOutput);
+             FlightPathWriter mapWriter = new FlightPathWriter(streamed, mapOutput)) {
+            count = new Simulation(drone(streamed), 250).run((before, direction, after, coins, power) -> {
+                logWriter.move(before, direction, after, coins, power);
+                mapWriter.move(before, direction, after, coins, power);
+            });
+        }
+        assertEquals(moves.size(), count);
+        assertEquals(log.toString(), logOutput.toString());
+        assertEquals(expected.toString(), mapOutput.toString());
+    }
+
+    @Test
+    public void testNoMoves() throws IOException {
+        Path file = Paths.get("maps", "2013", "01", "01", "powergrabmap.geojson");
+        GeoJson expected = new GeoJson(file), streamed = new GeoJson(file);
+        expected.addMoves(new Simulation(drone(expected), 0).runSimulation());
+        StringWriter output = new StringWriter();
+        try (FlightPathWriter mapWriter = new FlightPathWriter(streamed, output)) {
+            assertEquals(0, new Simulation(drone(streamed), 0).run(mapWriter));
+        }
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    public void testWriterClosedOnFailure() throws IOException {
+        boolean[] closed = new boolean[1];
+        StringWriter output = new StringWriter() {
+            @Override
+            public void close() { closed[0] = true; }
+        };
+        try {
+            // without features the document cannot be written
+            new FlightPathWriter(new GeoJson("{\"type\":\"FeatureCollection\"}"), output).close();
+            fail();
+        } catch (JSONException e) {
+            assertTrue(closed[0]);
+        }
+    }
+}
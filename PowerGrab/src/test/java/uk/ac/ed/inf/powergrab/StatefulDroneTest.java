@@ -0,0 +1,87 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatefulDroneTest {
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    private static double totalCoins(GameMap map) {
+        double result = 0.0;
+        for (Station station : map.stations)
+            result += station.getCoins();
+        return result;
+    }
+
+    @Test
+    public void testCollectsAllCoins() {
+        GameMap map = TestMaps.random(new Random(1), 30, 10.0, 10.0);
+        double total = totalCoins(map);
+        StatefulDrone drone = new StatefulDrone(start, map, 0.0, 250.0, 250);
+        new Simulation(drone, 250).runSimulation();
+        assertEquals(total, drone.getCoins(), 1e-9);
+    }
+
+    @Test
+    public void testReplansAfterDeviations() {
+        Random random = new Random(2);
+        GameMap map = TestMaps.random(random, 30, 10.0, 10.0);
+        double total = totalCoins(map);
+        StatefulDrone drone = new StatefulDrone(start, map, 0.0, 1000.0, 1000);
+        for (int move = 0; move < 1000 && totalCoins(map) > 0.0; move++) {
+            Direction direction = drone.getDirection();
+            // an external controller overrides some of the moves, sometimes repeatedly
+            if (move % 7 == 3 || move % 7 == 4) {
+                Direction override = Direction.values()[random.nextInt(16)];
+                if (drone.getPosition().nextPosition(override).inPlayArea())
+                    direction = override;
+            }
+            drone.move(direction);
+        }
+        assertEquals(total, drone.getCoins(), 1e-9);
+    }
+
+    @Test
+    public void testMaxExpansions() {
+        GameMap map = TestMaps.random(new Random(3), 30, 10.0, 10.0);
+        double total = totalCoins(map);
+        StatefulDrone drone = new StatefulDrone(start, map, 0.0, 1000.0, 1000);
+        // each plan only reaches a few moves ahead
+        drone.setMaxExpansions(5);
+        new Simulation(drone, 1000).runSimulation();
+        assertEquals(total, drone.getCoins(), 1e-9);
+    }
+
+    @Test
+    public void testMaxNodes() {
+        GameMap map = TestMaps.random(new Random(5), 30, 10.0, 10.0);
+        double total = totalCoins(map);
+        StatefulDrone drone = new StatefulDrone(start, map, 0.0, 1000.0, 1000);
+        // each plan only holds paths of up to 39 moves
+        drone.setMaxNodes(40);
+        new Simulation(drone, 1000).runSimulation();
+        assertEquals(total, drone.getCoins(), 1e-9);
+    }
+
+    @Test
+    public void testBackgroundImprovement() {
+        GameMap map = TestMaps.random(new Random(4), 30, 10.0, 10.0);
+        double total = totalCoins(map);
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        try {
+            StatefulDrone drone = new StatefulDrone(start, map, 0.0, 1000.0, 1000);
+            drone.setTimeLimit(1, TimeUnit.MILLISECONDS);
+            drone.setBackground(background);
+            new Simulation(drone, 1000).runSimulation();
+            assertEquals(total, drone.getCoins(), 1e-9);
+        } finally {
+            background.shutdownNow();
+        }
+    }
+}
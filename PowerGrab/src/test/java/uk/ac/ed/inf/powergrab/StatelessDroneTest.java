@@ -0,0 +1,67 @@
+package uk.ac.ed.inf.powergrab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StatelessDroneTest {
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    @Test
+    public void testBestStation() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(new Station("a", start.nextPosition(Direction.E), 5.0, 0.0));
+        stations.add(new Station("b", start.nextPosition(Direction.W), 10.0, 0.0));
+        GameMap map = new GameMap(stations);
+        StatelessDrone drone = new StatelessDrone(start, map, 0.0, 250.0);
+        for (int seed = 0; seed < 20; seed++) {
+            drone.random.setSeed(seed);
+            Direction direction = drone.getDirection();
+            // the neighbouring directions also reach the station
+            assertSame(map.stations.get(1), map.closeStation(start.nextPosition(direction)));
+        }
+    }
+
+    @Test
+    public void testAvoidsNegativeStations() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(new Station("a", start.nextPosition(Direction.N), -1.0, 0.0));
+        stations.add(new Station("b", start.nextPosition(Direction.S), -1.0, 0.0));
+        GameMap map = new GameMap(stations);
+        StatelessDrone drone = new StatelessDrone(start, map, 0.0, 250.0);
+        for (int seed = 0; seed < 50; seed++) {
+            drone.random.setSeed(seed);
+            assertNull(map.closeStation(start.nextPosition(drone.getDirection())));
+        }
+    }
+
+    @Test
+    public void testUniformTies() {
+        StatelessDrone drone = new StatelessDrone(start, new GameMap(Collections.emptyList()), 0.0, 250.0);
+        drone.random.setSeed(2);
+        int[] counts = new int[16];
+        int draws = 16000;
+        for (int i = 0; i < draws; i++)
+            counts[drone.getDirection().ordinal()]++;
+        for (int count : counts)
+            assertEquals(draws / 16.0, count, draws / 16.0 * 0.15);
+    }
+
+    @Test
+    public void testSameSeedSameMoves() {
+        GameMap map = new GameMap(Collections.emptyList());
+        StatelessDrone first = new StatelessDrone(start, map, 0.0, 250.0);
+        StatelessDrone second = new StatelessDrone(start, map, 0.0, 250.0);
+        first.random.setSeed(3);
+        second.random.setSeed(3);
+        List<Simulation.Move> firstMoves = new Simulation(first, 250).runSimulation();
+        List<Simulation.Move> secondMoves = new Simulation(second, 250).runSimulation();
+        assertEquals(firstMoves.size(), secondMoves.size());
+        for (int i = 0; i < firstMoves.size(); i++)
+            assertEquals(firstMoves.get(i).direction, secondMoves.get(i).direction);
+    }
+}
@@ -0,0 +1,89 @@
+package uk.ac.ed.inf.powergrab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Random positions and maps, and assertions on maps, shared by the tests.
+ */
+public final class TestMaps {
+    private TestMaps() {}
+
+    /**
+     * Returns {@code size} random positions in the play area.
+     */
+    public static List<Position> randomPositions(Random random, int size) {
+        return randomPositions(random, size, 1.0);
+    }
+
+    /**
+     * Returns {@code size} random positions in an area {@code spread} times as large
+     * as the play area in each dimension, with the same south-west corner.
+     */
+    public static List<Position> randomPositions(Random random, int size, double spread) {
+        List<Position> positions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            positions.add(randomPosition(random, spread));
+        return positions;
+    }
+
+    /**
+     * Returns a map of the stations at the {@code positions}, each with the given resources.
+     */
+    public static GameMap map(List<Position> positions, double coins, double power) {
+        List<Station> stations = new ArrayList<>(positions.size());
+        for (Position position : positions)
+            stations.add(new Station(Integer.toString(stations.size()), position, coins, power));
+        return new GameMap(stations);
+    }
+
+    /**
+     * Returns a map of {@code size} stations at random positions in the play area,
+     * each with the given resources.
+     */
+    public static GameMap random(Random random, int size, double coins, double power) {
+        return map(randomPositions(random, size), coins, power);
+    }
+
+    /**
+     * Returns a map of {@code size} stations at random positions in the play area,
+     * with random coins and power between -30 and 70, so some of them are negative.
+     */
+    public static GameMap random(Random random, int size) {
+        List<Station> stations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Position position = randomPosition(random, 1.0);
+            stations.add(new Station(Integer.toString(i), position,
+                    random.nextDouble() * 100.0 - 30.0, random.nextDouble() * 100.0 - 30.0));
+        }
+        return new GameMap(stations);
+    }
+
+    /**
+     * Asserts that the maps have the same stations in the same order, with exactly
+     * the same positions and resources.
+     */
+    public static void assertSameMap(GameMap expected, GameMap actual) {
+        assertEquals(expected.stations.size(), actual.stations.size());
+        for (int i = 0; i < expected.stations.size(); i++) {
+            Station s1 = expected.stations.get(i), s2 = actual.stations.get(i);
+            assertEquals(s1.id, s2.id);
+            assertEquals(s1.position.latitude, s2.position.latitude, 0.0);
+            assertEquals(s1.position.longitude, s2.position.longitude, 0.0);
+            assertEquals(s1.getCoins(), s2.getCoins(), 0.0);
+            assertEquals(s1.getPower(), s2.getPower(), 0.0);
+        }
+    }
+
+    private static Position randomPosition(Random random, double spread) {
+        Rectangle area = GameRules.playArea;
+        double latitude = area.bottomRight.latitude
+                + random.nextDouble() * (area.topLeft.latitude - area.bottomRight.latitude) * spread;
+        double longitude = area.topLeft.longitude
+                + random.nextDouble() * (area.bottomRight.longitude - area.topLeft.longitude) * spread;
+        return new Position(latitude, longitude);
+    }
+}
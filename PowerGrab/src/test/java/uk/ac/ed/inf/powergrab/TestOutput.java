@@ -18,11 +18,13 @@ public class TestOutput {
     @Test
     public void testAll() {
         /*// Comment out for maven building
-        IntStream.rangeClosed(2019, 2020).parallel().mapToObj(Integer::toString).forEach(i -> {
+        IntStream.rangeClosed(2019, 2020).mapToObj(Integer::toString).forEach(i -> {
             Program.main(new String[] {
-                    "01", "01", i, "55.944425", "-3.188396", "5678", "stateless", "-nolog", "-to", "31-12-" + i });
+                    "01", "01", i, "55.944425", "-3.188396", "5678", "stateless", "-nolog", "-to", "31-12-" + i,
+                    "-threads", "4" });
             Program.main(new String[] {
-                    "01", "01", i, "55.944425", "-3.188396", "5678", "stateful", "-stats", "-nolog", "-to", "31-12-" + i });
+                    "01", "01", i, "55.944425", "-3.188396", "5678", "stateful", "-stats", "-nolog", "-to", "31-12-" + i,
+                    "-threads", "4" });
         });*/
     }
 }
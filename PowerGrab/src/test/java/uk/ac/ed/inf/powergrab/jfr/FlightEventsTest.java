@@ -0,0 +1,65 @@
+package uk.ac.ed.inf.powergrab.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import uk.ac.ed.inf.powergrab.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FlightEventsTest {
+    @Test
+    public void testStatefulDroneEvents() throws IOException {
+        assertTrue(FlightEvents.AVAILABLE);
+        GameMap map = TestMaps.random(new Random(1), 30);
+        Path file = Files.createTempFile("powergrab", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PlanEvent.class);
+            recording.enable(SearchEvent.class);
+            recording.enable(TourEvent.class);
+            recording.start();
+            StatefulDrone drone = new StatefulDrone(new Position(55.944425, -3.188396), map, 0.0, 250.0, 250);
+            drone.random.setSeed(5678);
+            new Simulation(drone, 250).run();
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, Integer> counts = new HashMap<>();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            for (RecordedEvent event : events)
+                counts.merge(event.getEventType().getName(), 1, Integer::sum);
+            assertTrue(counts.get("uk.ac.ed.inf.powergrab.Plan") > 0);
+            // each plan orders the stations and searches for the path
+            assertEquals(counts.get("uk.ac.ed.inf.powergrab.Plan"), counts.get("uk.ac.ed.inf.powergrab.Tour"));
+            assertEquals(counts.get("uk.ac.ed.inf.powergrab.Plan"), counts.get("uk.ac.ed.inf.powergrab.Search"));
+            for (RecordedEvent event : events) {
+                switch (event.getEventType().getName()) {
+                    case "uk.ac.ed.inf.powergrab.Plan":
+                        assertTrue(event.getInt("stations") > 0);
+                        assertTrue(event.getInt("planLength") > 0);
+                        break;
+                    case "uk.ac.ed.inf.powergrab.Search":
+                        assertTrue(event.getLong("expansions") > 0);
+                        assertTrue(event.getInt("frontierPeak") > 0);
+                        assertNotNull(event.getString("outcome"));
+                        break;
+                    case "uk.ac.ed.inf.powergrab.Tour":
+                        assertEquals("LocalSearchTspSolver", event.getString("solver"));
+                        assertTrue(event.getDouble("length") <= event.getDouble("initialLength"));
+                        break;
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
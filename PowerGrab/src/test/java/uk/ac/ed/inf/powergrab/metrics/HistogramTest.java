@@ -0,0 +1,64 @@
+package uk.ac.ed.inf.powergrab.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (int i = 0; i < 1888; i++) {
+            long highest = Histogram.highestValue(i);
+            assertTrue(highest > previous);
+            assertEquals(i, Histogram.bucket(highest));
+            assertEquals(i, Histogram.bucket(previous + 1));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++)
+            histogram.record(value);
+        assertEquals(100000L, histogram.getCount());
+        assertEquals(100000L, histogram.getMax());
+        assertEquals(50000.5, histogram.getMean(), 1e-9);
+        for (double p : new double[] { 1.0, 50.0, 90.0, 99.0, 99.9 }) {
+            long expected = (long) Math.ceil(p * 1000.0);
+            long actual = histogram.getPercentile(p);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected * 1.04);
+        }
+        assertEquals(100000L, histogram.getPercentile(100.0));
+        assertEquals(0L, new Histogram().getPercentile(50.0));
+    }
+
+    @Test
+    public void testConcurrentAndAdd() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++)
+                    histogram.record(i);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(40000L, histogram.getCount());
+        Histogram total = new Histogram();
+        total.record(1000000);
+        total.add(histogram);
+        assertEquals(40001L, total.getCount());
+        assertEquals(1000000L, total.getMax());
+        assertEquals(histogram.getSum() + 1000000L, total.getSum());
+    }
+}
@@ -0,0 +1,71 @@
+package uk.ac.ed.inf.powergrab.metrics;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.SortedMap;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    private static Metrics sample() {
+        Metrics metrics = new Metrics();
+        metrics.add("b.counter", 3);
+        metrics.add("b.counter", 4);
+        metrics.record("a.latency", 10);
+        metrics.record("a.latency", 30);
+        return metrics;
+    }
+
+    @Test
+    public void testSnapshot() {
+        SortedMap<String, Number> snapshot = sample().snapshot();
+        assertEquals(7L, snapshot.get("b.counter"));
+        assertEquals(2L, snapshot.get("a.latency.count"));
+        assertEquals(20.0, snapshot.get("a.latency.mean"));
+        assertEquals(30L, snapshot.get("a.latency.max"));
+        assertEquals(10L, snapshot.get("a.latency.p50"));
+        assertEquals("a.latency.count", snapshot.firstKey());
+    }
+
+    @Test
+    public void testAdd() {
+        Metrics total = sample();
+        total.add(sample());
+        assertEquals(14L, total.counter("b.counter").sum());
+        assertEquals(4L, total.histogram("a.latency").getCount());
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        Metrics metrics = sample();
+        StringWriter csv = new StringWriter(), json = new StringWriter();
+        metrics.writeCsv(csv);
+        metrics.writeJson(json);
+        assertTrue(csv.toString().contains("b.counter,7" + System.lineSeparator()));
+        JSONObject object = new JSONObject(json.toString());
+        assertEquals(7L, object.getLong("b.counter"));
+        assertEquals(metrics.snapshot().size(), object.length());
+    }
+
+    @Test
+    public void testRegister() throws JMException {
+        Metrics metrics = sample();
+        ObjectName name = metrics.register("test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(7L, server.getAttribute(name, "b.counter"));
+            metrics.add("b.counter", 1);
+            assertEquals(8L, server.getAttribute(name, "b.counter"));
+            assertEquals(metrics.snapshot().size(), server.getMBeanInfo(name).getAttributes().length);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
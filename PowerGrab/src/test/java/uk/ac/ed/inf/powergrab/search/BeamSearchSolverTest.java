@@ -0,0 +1,113 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BeamSearchSolverTest {
+    private static final int SIZE = 40, GOAL_X = 31, GOAL_Y = 17;
+
+    /**
+     * A walk on a grid towards a goal cell, where nodes at the same cell are
+     * equivalent and many nodes have equal cost, so ties have to be broken
+     * in the same way on every run.
+     */
+    private static class GridNode implements HeuristicSearchSolver.Node<GridNode> {
+        final int x, y, moves;
+        final GridNode previous;
+
+        GridNode(int x, int y, int moves, GridNode previous) {
+            this.x = x;
+            this.y = y;
+            this.moves = moves;
+            this.previous = previous;
+        }
+
+        @Override
+        public Iterable<GridNode> childNodes() {
+            List<GridNode> result = new ArrayList<>(4);
+            int[][] steps = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
+            for (int[] step : steps) {
+                int nx = x + step[0], ny = y + step[1];
+                // a wall with a single gap
+                if (nx == 20 && ny != 3) continue;
+                if (nx >= 0 && ny >= 0 && nx < SIZE && ny < SIZE)
+                    result.add(new GridNode(nx, ny, moves + 1, this));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isGoal() { return x == GOAL_X && y == GOAL_Y; }
+
+        @Override
+        public boolean equivalent(GridNode o) { return x == o.x && y == o.y; }
+
+        @Override
+        public long equivalenceKey() { return x * SIZE + y; }
+
+        @Override
+        public int compareTo(GridNode o) {
+            return Integer.compare(moves + remaining(), o.moves + o.remaining());
+        }
+
+        private int remaining() { return Math.abs(x - GOAL_X) + Math.abs(y - GOAL_Y); }
+
+        String path() {
+            StringBuilder builder = new StringBuilder();
+            for (GridNode node = this; node != null; node = node.previous)
+                builder.append(node.x).append(',').append(node.y).append(' ');
+            return builder.toString();
+        }
+    }
+
+    @Test
+    public void testFindsGoal() {
+        BeamSearchSolver<GridNode> solver = new BeamSearchSolver<>(64);
+        GridNode solution = solver.solve(new GridNode(2, 30, 0, null));
+        assertNotNull(solution);
+        assertTrue(solution.isGoal());
+        // the shortest path goes through the gap in the wall
+        assertEquals(18 + 27 + 11 + 14, solution.moves);
+    }
+
+    @Test
+    public void testDeterministic() {
+        String expected = null;
+        for (int threads = 1; threads <= 4; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                BeamSearchSolver<GridNode> solver = new BeamSearchSolver<>(200);
+                solver.setPool(pool);
+                GridNode solution = solver.solve(new GridNode(2, 30, 0, null));
+                assertNotNull(solution);
+                if (expected == null)
+                    expected = solution.path();
+                else
+                    assertEquals(expected, solution.path());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testNoSolution() {
+        BeamSearchSolver<GridNode> solver = new BeamSearchSolver<>(8);
+        // the goal is unreachable from a node without children
+        GridNode start = new GridNode(0, 0, 0, null) {
+            @Override
+            public Iterable<GridNode> childNodes() { return new ArrayList<>(); }
+        };
+        assertNull(solver.solve(start));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBeamWidth() {
+        new BeamSearchSolver<GridNode>(0);
+    }
+}
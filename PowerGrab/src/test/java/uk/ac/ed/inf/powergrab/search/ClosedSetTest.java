@@ -0,0 +1,77 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ClosedSetTest {
+    /**
+     * A node equivalent to the nodes with the same state, with keys
+     * which collide for many states which are not equivalent.
+     */
+    private static class TestNode implements HeuristicSearchSolver.Node<TestNode> {
+        final int state, cost;
+
+        TestNode(int state, int cost) {
+            this.state = state;
+            this.cost = cost;
+        }
+
+        @Override
+        public Iterable<TestNode> childNodes() { return Collections.emptyList(); }
+
+        @Override
+        public boolean isGoal() { return false; }
+
+        @Override
+        public boolean equivalent(TestNode o) { return state == o.state; }
+
+        @Override
+        public long equivalenceKey() { return state % 7; }
+
+        @Override
+        public int compareTo(TestNode o) { return Integer.compare(cost, o.cost); }
+    }
+
+    @Test
+    public void testEquivalentNodes() {
+        ClosedSet<TestNode> set = new ClosedSet<>(Integer.MAX_VALUE);
+        for (int state = 0; state < 1000; state++)
+            set.put(new TestNode(state, state));
+        assertEquals(1000, set.size());
+        for (int state = 0; state < 1000; state++)
+            assertEquals(state, set.get(new TestNode(state, -1)).cost);
+        assertNull(set.get(new TestNode(1000, 0)));
+        TestNode replacement = new TestNode(500, 0);
+        set.put(replacement);
+        assertEquals(1000, set.size());
+        assertSame(replacement, set.get(new TestNode(500, -1)));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyExplored() {
+        ClosedSet<TestNode> set = new ClosedSet<>(100);
+        for (int state = 0; state < 100; state++)
+            set.put(new TestNode(state, state));
+        // exploring state 0 again makes it the most recent
+        set.put(new TestNode(0, 0));
+        for (int state = 100; state < 150; state++)
+            set.put(new TestNode(state, state));
+        assertEquals(100, set.size());
+        assertNotNull(set.get(new TestNode(0, 0)));
+        for (int state = 1; state <= 50; state++)
+            assertNull(set.get(new TestNode(state, 0)));
+        for (int state = 51; state < 150; state++)
+            assertNotNull(set.get(new TestNode(state, 0)));
+    }
+
+    @Test
+    public void testEmpty() {
+        ClosedSet<TestNode> set = new ClosedSet<>(0);
+        set.put(new TestNode(1, 1));
+        assertEquals(0, set.size());
+        assertNull(set.get(new TestNode(1, 1)));
+    }
+}
@@ -0,0 +1,159 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+import uk.ac.ed.inf.powergrab.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HeuristicSearchSolverTest {
+    private static final int SIZE = 200;
+
+    /**
+     * A walk on a grid towards the opposite corner, counting the expanded nodes.
+     */
+    private static class GridNode implements HeuristicSearchSolver.Node<GridNode> {
+        final int x, y, moves;
+        final int[] expanded;
+
+        GridNode(int x, int y, int moves, int[] expanded) {
+            this.x = x;
+            this.y = y;
+            this.moves = moves;
+            this.expanded = expanded;
+        }
+
+        @Override
+        public Iterable<GridNode> childNodes() {
+            expanded[0]++;
+            List<GridNode> result = new ArrayList<>(4);
+            if (x + 1 < SIZE) result.add(new GridNode(x + 1, y, moves + 1, expanded));
+            if (y + 1 < SIZE) result.add(new GridNode(x, y + 1, moves + 1, expanded));
+            if (x > 0) result.add(new GridNode(x - 1, y, moves + 1, expanded));
+            if (y > 0) result.add(new GridNode(x, y - 1, moves + 1, expanded));
+            return result;
+        }
+
+        @Override
+        public boolean isGoal() { return x == SIZE - 1 && y == SIZE - 1; }
+
+        @Override
+        public boolean equivalent(GridNode o) { return x == o.x && y == o.y; }
+
+        @Override
+        public long equivalenceKey() { return x * SIZE + y; }
+
+        int remaining() { return 2 * (SIZE - 1) - x - y; }
+
+        @Override
+        public int compareTo(GridNode o) {
+            int compRemaining = Integer.compare(remaining(), o.remaining());
+            return compRemaining != 0 ? compRemaining : Integer.compare(moves, o.moves);
+        }
+    }
+
+    @Test
+    public void testUnbounded() {
+        GridNode solution = new HeuristicSearchSolver<GridNode>().solve(new GridNode(0, 0, 0, new int[1]));
+        assertTrue(solution.isGoal());
+        assertEquals(2 * (SIZE - 1), solution.moves);
+    }
+
+    @Test
+    public void testMaxExpansions() {
+        int[] expanded = new int[1];
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        solver.setMaxExpansions(10);
+        GridNode first = new GridNode(0, 0, 0, expanded);
+        GridNode best = solver.solve(first);
+        assertEquals(10, expanded[0]);
+        // the best partial solution is returned
+        assertFalse(best.isGoal());
+        assertEquals(10, best.moves);
+        assertEquals(10, best.x + best.y);
+        // at least one node is expanded
+        solver.setMaxExpansions(1);
+        assertNotSame(first, solver.solve(first));
+    }
+
+    @Test
+    public void testMaxNodes() {
+        int[] expanded = new int[1];
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        solver.setMaxNodes(2 * SIZE + 10);
+        GridNode solution = solver.solve(new GridNode(0, 0, 0, expanded));
+        assertTrue(solution.isGoal());
+        assertEquals(2 * (SIZE - 1), solution.moves);
+        assertEquals(2 * SIZE + 10, solver.getMaxNodes());
+    }
+
+    @Test
+    public void testMaxNodesPartial() {
+        // a path to the goal does not fit, so the best path of 49 moves is returned
+        int[] expanded = new int[1];
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        solver.setMaxNodes(50);
+        GridNode best = solver.solve(new GridNode(0, 0, 0, expanded));
+        assertFalse(best.isGoal());
+        assertEquals(49, best.moves);
+        assertEquals(49, best.x + best.y);
+        assertEquals(49, expanded[0]);
+    }
+
+    @Test
+    public void testMetrics() {
+        int[] expanded = new int[1];
+        Metrics metrics = new Metrics();
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>(3);
+        solver.setMetrics(metrics);
+        solver.setMaxExpansions(20);
+        solver.solve(new GridNode(0, 0, 0, expanded));
+        solver.solve(new GridNode(0, 0, 0, expanded));
+        assertEquals(2L, metrics.counter(HeuristicSearchSolver.SEARCHES).sum());
+        assertEquals(expanded[0], metrics.counter(HeuristicSearchSolver.EXPANSIONS).sum());
+        // most children do not fit in a frontier of three nodes
+        assertTrue(metrics.counter(HeuristicSearchSolver.FRONTIER_TRIMS).sum() > 0);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        solver.setTimeLimit(0, TimeUnit.MILLISECONDS);
+        GridNode best = solver.solve(new GridNode(0, 0, 0, new int[1]));
+        assertEquals(1, best.moves);
+        assertEquals(0L, solver.getTimeLimit(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStop() {
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        solver.stop();
+        assertEquals(1, solver.solve(new GridNode(0, 0, 0, new int[1])).moves);
+    }
+
+    @Test
+    public void testWarmStart() {
+        int[] expanded = new int[1];
+        HeuristicSearchSolver<GridNode> solver = new HeuristicSearchSolver<>();
+        GridNode warm = new GridNode(SIZE - 1, SIZE - 3, 2 * (SIZE - 2), expanded);
+        GridNode solution = solver.solve(new GridNode(0, 0, 0, expanded), Collections.singletonList(warm));
+        assertTrue(solution.isGoal());
+        // the search resumes from the warm start node
+        assertEquals(2 * (SIZE - 1), solution.moves);
+        assertTrue(expanded[0] < 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxExpansions() {
+        new HeuristicSearchSolver<GridNode>().setMaxExpansions(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxNodes() {
+        new HeuristicSearchSolver<GridNode>().setMaxNodes(1);
+    }
+}
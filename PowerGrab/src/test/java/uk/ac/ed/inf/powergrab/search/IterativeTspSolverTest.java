@@ -0,0 +1,74 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+import uk.ac.ed.inf.powergrab.Position;
+import uk.ac.ed.inf.powergrab.TestMaps;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class IterativeTspSolverTest {
+    /**
+     * A node on a line where moving left costs three times as much as moving right.
+     */
+    private static class WindyNode implements TspSolver.Node<WindyNode> {
+        final double x;
+
+        WindyNode(double x) { this.x = x; }
+
+        @Override
+        public double distance(WindyNode other) {
+            return other.x >= x ? other.x - x : 3.0 * (x - other.x);
+        }
+    }
+
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    @Test
+    public void testSquare() {
+        Position a = new Position(55.943, -3.190), b = new Position(55.943, -3.189);
+        Position c = new Position(55.944, -3.189), d = new Position(55.944, -3.190);
+        IterativeTspSolver<Position> solver = new IterativeTspSolver<>();
+        solver.setInitialNode(a);
+        List<Position> tour = solver.solve(Arrays.asList(c, b, d));
+        assertEquals(Arrays.asList(b, c, d), tour.get(0).equals(b) ? tour : reversed(tour));
+    }
+
+    private static List<Position> reversed(List<Position> list) {
+        List<Position> result = new ArrayList<>(list);
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Test
+    public void testPermutation() {
+        Random random = new Random(1);
+        for (int size : new int[] { 0, 1, 2, 3, 10, 30 }) {
+            List<Position> nodes = TestMaps.randomPositions(random, size);
+            for (Position initial : new Position[] { start, null }) {
+                IterativeTspSolver<Position> solver = new IterativeTspSolver<>();
+                solver.setInitialNode(initial);
+                List<Position> tour = solver.solve(nodes);
+                assertEquals(size, tour.size());
+                assertEquals(new HashSet<>(nodes), new HashSet<>(tour));
+                solver.setSymmetric(false);
+                if (size <= 10)
+                    assertEquals(new HashSet<>(nodes), new HashSet<>(solver.solve(nodes)));
+            }
+        }
+    }
+
+    @Test
+    public void testAsymmetric() {
+        List<WindyNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            nodes.add(new WindyNode(i));
+        Collections.shuffle(nodes, new Random(2));
+        IterativeTspSolver<WindyNode> solver = new IterativeTspSolver<>();
+        solver.setSymmetric(false);
+        List<WindyNode> tour = solver.solve(nodes);
+        for (int i = 0; i < tour.size(); i++)
+            assertEquals(i, tour.get(i).x, 0.0);
+    }
+}
@@ -0,0 +1,105 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+import uk.ac.ed.inf.powergrab.Position;
+import uk.ac.ed.inf.powergrab.TestMaps;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalSearchTspSolverTest {
+    private static final Position start = new Position(55.944425, -3.188396);
+
+    private static double length(Position initial, List<Position> tour) {
+        double result = 0.0;
+        Position previous = initial;
+        for (Position position : tour) {
+            if (previous != null)
+                result += previous.distance(position);
+            previous = position;
+        }
+        return result;
+    }
+
+    private static List<Position> nearestNeighbourTour(Position initial, List<Position> nodes) {
+        List<Position> remaining = new ArrayList<>(nodes), result = new ArrayList<>();
+        Position current = initial != null ? initial : remaining.remove(0);
+        if (initial == null) result.add(current);
+        while (!remaining.isEmpty()) {
+            Position nearest = null;
+            for (Position position : remaining)
+                if (nearest == null || current.distance(position) < current.distance(nearest))
+                    nearest = position;
+            remaining.remove(nearest);
+            result.add(nearest);
+            current = nearest;
+        }
+        return result;
+    }
+
+    private static void assertGoodTour(Position initial, List<Position> nodes) {
+        LocalSearchTspSolver<Position> solver = new LocalSearchTspSolver<>();
+        solver.setInitialNode(initial);
+        List<Position> tour = solver.solve(nodes);
+        assertEquals(nodes.size(), tour.size());
+        assertEquals(new HashSet<>(nodes), new HashSet<>(tour));
+        assertTrue(length(initial, tour) <= length(initial, nearestNeighbourTour(initial, nodes)) + 1e-12);
+        assertEquals(tour, solver.solve(nodes));
+    }
+
+    @Test
+    public void testFixedStart() {
+        Random random = new Random(1);
+        for (int size : new int[] { 0, 1, 2, 3, 5, 10, 50, 200 })
+            assertGoodTour(start, TestMaps.randomPositions(random, size));
+    }
+
+    @Test
+    public void testFreeStart() {
+        Random random = new Random(2);
+        for (int size : new int[] { 1, 2, 3, 5, 10, 50, 200 })
+            assertGoodTour(null, TestMaps.randomPositions(random, size));
+    }
+
+    @Test
+    public void testNoPerturbations() {
+        List<Position> nodes = TestMaps.randomPositions(new Random(3), 100);
+        LocalSearchTspSolver<Position> solver = new LocalSearchTspSolver<>(5);
+        solver.setInitialNode(start);
+        solver.setPerturbations(0);
+        List<Position> tour = solver.solve(nodes);
+        assertEquals(new HashSet<>(nodes), new HashSet<>(tour));
+        assertTrue(length(start, tour) <= length(start, nearestNeighbourTour(start, nodes)) + 1e-12);
+    }
+
+    @Test
+    public void testRepair() {
+        Random random = new Random(4);
+        List<Position> nodes = TestMaps.randomPositions(random, 100);
+        LocalSearchTspSolver<Position> solver = new LocalSearchTspSolver<>();
+        solver.setInitialNode(start);
+        List<Position> tour = solver.solve(nodes);
+        // a local optimum is not changed
+        assertEquals(tour, solver.repair(tour, nodes));
+        // visit the first stations and add new ones, changing their neighbours
+        List<Position> kept = new ArrayList<>(tour.subList(5, tour.size()));
+        Set<Position> changed = new HashSet<>();
+        changed.add(kept.get(0));
+        for (Position position : TestMaps.randomPositions(random, 5)) {
+            kept.add(position);
+            changed.add(position);
+        }
+        solver.setInitialNode(tour.get(4));
+        List<Position> repaired = solver.repair(kept, changed);
+        assertEquals(new HashSet<>(kept), new HashSet<>(repaired));
+        assertTrue(length(tour.get(4), repaired) <= length(tour.get(4), kept));
+        assertEquals(repaired, solver.repair(kept, changed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNeighbours() {
+        new LocalSearchTspSolver<Position>(0);
+    }
+}
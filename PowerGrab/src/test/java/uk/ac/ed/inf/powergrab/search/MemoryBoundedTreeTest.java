@@ -0,0 +1,163 @@
+package uk.ac.ed.inf.powergrab.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryBoundedTreeTest {
+    /**
+     * A node of a binary tree of states up to {@code maxState}, the children of
+     * state {@code s} being {@code 2s + 1} and {@code 2s + 2}, with costs
+     * increasing with depth.
+     */
+    private static class TreeNode implements HeuristicSearchSolver.Node<TreeNode> {
+        final int state, cost, maxState;
+
+        TreeNode(int state, int cost, int maxState) {
+            this.state = state;
+            this.cost = cost;
+            this.maxState = maxState;
+        }
+
+        TreeNode(int state, int cost) {
+            this(state, cost, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public Iterable<TreeNode> childNodes() {
+            List<TreeNode> result = new ArrayList<>(2);
+            for (int child = 2 * state + 1; child <= 2 * state + 2 && child <= maxState; child++)
+                result.add(new TreeNode(child, cost + 1 + child % 5, maxState));
+            return result;
+        }
+
+        @Override
+        public boolean isGoal() { return false; }
+
+        @Override
+        public boolean equivalent(TreeNode o) { return state == o.state; }
+
+        @Override
+        public long equivalenceKey() { return state; }
+
+        @Override
+        public int compareTo(TreeNode o) { return Integer.compare(cost, o.cost); }
+    }
+
+    /**
+     * Returns a node with the given children.
+     */
+    private static TreeNode node(int state, int cost, TreeNode... children) {
+        return new TreeNode(state, cost) {
+            @Override
+            public Iterable<TreeNode> childNodes() { return Arrays.asList(children); }
+        };
+    }
+
+    @Test
+    public void testMaxNodes() {
+        MemoryBoundedTree<TreeNode> tree = new MemoryBoundedTree<>(new TreeNode(0, 0), 20);
+        TreeNode previous = null;
+        for (int i = 0; i < 1000; i++) {
+            MemoryBoundedTree<TreeNode>.Entry best = tree.best();
+            // the values of the entries expanded never get better
+            if (previous != null)
+                assertTrue(best.value.compareTo(previous) >= 0);
+            previous = best.value;
+            tree.expand(best);
+            assertTrue(tree.size() <= 20);
+        }
+        assertEquals(20, tree.peakSize());
+        assertTrue(tree.forgottenCount() > 0);
+    }
+
+    @Test
+    public void testRegenerate() {
+        // the first child is better but leads to a worse goal
+        TreeNode root = new TreeNode(0, 0) {
+            @Override
+            public Iterable<TreeNode> childNodes() {
+                List<TreeNode> result = new ArrayList<>(2);
+                result.add(new TreeNode(1, 1) {
+                    @Override
+                    public Iterable<TreeNode> childNodes() {
+                        // only a goal fits at the maximum depth
+                        List<TreeNode> grandchildren = new ArrayList<>(1);
+                        grandchildren.add(new TreeNode(3, 5) {
+                            @Override
+                            public boolean isGoal() { return true; }
+                        });
+                        return grandchildren;
+                    }
+                });
+                result.add(new TreeNode(2, 2));
+                return result;
+            }
+        };
+        MemoryBoundedTree<TreeNode> tree = new MemoryBoundedTree<>(root, 3);
+        tree.expand(tree.best());
+        assertEquals(1, tree.best().node.state);
+        // the second child is forgotten to make room for the grandchild
+        tree.expand(tree.best());
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.forgottenCount());
+        // and backed up into the root, which regenerates it
+        MemoryBoundedTree<TreeNode>.Entry best = tree.best();
+        assertSame(root, best.node);
+        assertEquals(2, best.value.cost);
+        tree.expand(best);
+        assertEquals(2, tree.best().node.state);
+        assertEquals(2, tree.forgottenCount());
+        assertEquals(3, tree.size());
+    }
+
+    @Test
+    public void testHorizon() {
+        MemoryBoundedTree<TreeNode> tree = new MemoryBoundedTree<>(new TreeNode(0, 0), 3);
+        MemoryBoundedTree<TreeNode>.Entry best;
+        while (!tree.atHorizon(best = tree.best()))
+            tree.expand(best);
+        // the best grandchild is state 5 with cost 4 below the worse child,
+        // found after forgetting the grandchildren below the better child
+        assertEquals(2, best.depth);
+        assertEquals(5, best.node.state);
+        assertTrue(tree.forgottenCount() > 0);
+        assertTrue(tree.size() <= 3);
+    }
+
+    @Test
+    public void testDeadEnds() {
+        // the search space is exhausted, the dead ends are kept as there is room
+        MemoryBoundedTree<TreeNode> tree = new MemoryBoundedTree<>(new TreeNode(0, 0, 6), 20);
+        int expansions = 0;
+        for (MemoryBoundedTree<TreeNode>.Entry best; (best = tree.best()) != null; expansions++)
+            tree.expand(best);
+        assertEquals(7, tree.size());
+        assertEquals(7, expansions);
+        assertEquals(7, tree.peakSize());
+    }
+
+    @Test
+    public void testForgetBestEquivalent() {
+        // state 9 is reached with costs 5, then 3, then 6
+        TreeNode root = node(0, 0,
+                node(1, 1, node(9, 5)),
+                node(2, 2, node(9, 3), node(3, 4, node(4, 5, node(9, 6)))));
+        MemoryBoundedTree<TreeNode> tree = new MemoryBoundedTree<>(root, 6);
+        // the dead end of cost 3 is forgotten to make room for state 4
+        for (int i = 0; i < 5; i++)
+            tree.expand(tree.best());
+        assertEquals(1, tree.forgottenCount());
+        MemoryBoundedTree<TreeNode>.Entry best = tree.best();
+        assertEquals(4, best.node.state);
+        // state 9 of cost 5 is still in the tree, so the one of cost 6 is not added
+        tree.expand(best);
+        assertTrue(best.children.isEmpty());
+        assertTrue(best.dead);
+        assertEquals(6, tree.size());
+    }
+}